@@ -11,21 +11,62 @@ import java.io.IOException;
  * Media Player abstraction interface
  */
 public interface IRNMediaPlayer {
+    /** The backend's own seek behavior. */
+    int SEEK_DEFAULT = 0;
+    /** Frame-accurate seek. */
+    int SEEK_EXACT = 1;
+    /** Seek to the closest sync frame, for scrubbing. */
+    int SEEK_FAST = 2;
+
     void play();
     void pause();
     void stop();
+
+    /**
+     * Pauses and goes back to the start without reporting a seek, keeping the sound prepared,
+     * whereas stop() may free the decoder until the next play().
+     */
+    void rewindPrepared();
     void setUri(final Uri uri) throws IOException;
     void setRawResourceId(final int resourceId) throws IOException;
+
+    /**
+     * Sets a clip of a sound bank as the source, read in place from the bank file.
+     */
+    void setSoundBankClip(final RNSoundBank.Clip clip) throws IOException;
     void prepare() throws IOException;
     void reset();
     void seekTo(final int msec);
+
+    /**
+     * Seeks with one of the SEEK_ modes. Completion is reported to the seek complete listener.
+     */
+    void seekTo(final int msec, final int mode);
     void setVolume(final float volume);
     void getDeviceVolume(Promise promise);
     void isDeviceMuted(Promise promise);
     long getCurrentPosition();
     long getDuration();
 
+    /**
+     * Position up to which the source is loaded, the duration for local sources.
+     */
+    long getBufferedPosition();
+    boolean isPlaying();
+
+    /**
+     * Repeats the sound loops more times, forever when negative, from the next prepare(). When
+     * looping, only the region from loopStartMs to loopEndMs is played, 0 meaning the end.
+     */
+    void setLooping(final int loops, final int loopStartMs, final int loopEndMs);
+
+    /**
+     * Frees the native player, codecs and buffers. The player cannot be used afterwards.
+     */
+    void release();
+
     void setOnCompletionListener(IRNOnCompletionListener onCompletionListener);
     void setOnErrorListener(IRNOnErrorListener onErrorListener);
     void setOnPreparedListener(IRNOnPreparedListener onPreparedListener);
+    void setOnSeekCompleteListener(IRNOnSeekCompleteListener onSeekCompleteListener);
 }
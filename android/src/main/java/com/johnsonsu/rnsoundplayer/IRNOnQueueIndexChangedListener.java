@@ -0,0 +1,5 @@
+package com.johnsonsu.rnsoundplayer;
+
+public interface IRNOnQueueIndexChangedListener {
+    void onQueueIndexChanged(IRNMediaPlayer mediaPlayer, int index);
+}
@@ -0,0 +1,5 @@
+package com.johnsonsu.rnsoundplayer;
+
+public interface IRNOnSeekCompleteListener {
+    void onSeekComplete(IRNMediaPlayer mediaPlayer, long latencyMs);
+}
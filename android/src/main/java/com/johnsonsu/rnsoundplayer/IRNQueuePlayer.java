@@ -0,0 +1,20 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.net.Uri;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Media Player that can play a queue of sources back to back, buffering the next source while
+ * the current one plays
+ */
+public interface IRNQueuePlayer extends IRNMediaPlayer {
+    void setQueue(final List<Uri> uris) throws IOException;
+    void enqueue(final Uri uri) throws IOException;
+    void skipNext() throws IOException;
+    void skipPrevious() throws IOException;
+    int getQueueIndex();
+
+    void setOnQueueIndexChangedListener(IRNOnQueueIndexChangedListener onQueueIndexChangedListener);
+}
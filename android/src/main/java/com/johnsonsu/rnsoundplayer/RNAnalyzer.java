@@ -0,0 +1,270 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.Context;
+import android.media.MediaExtractor;
+import android.net.Uri;
+import android.os.Process;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Analyzes sounds on a background thread of low priority, caching the results on disk.
+ *
+ * Local sounds are cached by the hash of their content, so a changed file is analyzed again;
+ * urls are cached by url, like the url cache, and assumed not to change.
+ */
+public class RNAnalyzer {
+    public static final int DEFAULT_BUCKETS = 256;
+    public static final int MAX_BUCKETS = 8192;
+    private static final int MAX_CACHED_RESULTS = 256;
+    private static final String CACHE_FOLDER = "RNSoundPlayerAnalysis";
+    // Bumped whenever the analysis changes, so that older results are not reused
+    private static final int VERSION = 1;
+
+    public interface Callback {
+        void onAnalyzed(RNAudioAnalysis.Result result, boolean cached);
+
+        void onError(Exception e);
+    }
+
+    private interface Opener {
+        String getContentKey() throws IOException;
+
+        MediaExtractor open() throws IOException;
+    }
+
+    private final Context context;
+    private ExecutorService executor;
+
+    public RNAnalyzer(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public void analyze(final RNSoundResolver.Source source, int buckets, Callback callback) {
+        submit(new Opener() {
+            @Override
+            public String getContentKey() throws IOException {
+                return "sha1:" + hashContent(source);
+            }
+
+            @Override
+            public MediaExtractor open() throws IOException {
+                return RNSampleDecoder.open(context, source);
+            }
+        }, buckets, callback);
+    }
+
+    /**
+     * Analyzes a file, content uri or url. Urls are read through dataSourceFactory, e.g. the url
+     * cache, so that a streamed or preloaded url is not downloaded again.
+     */
+    public void analyze(final Uri uri, final DataSource.Factory dataSourceFactory, int buckets, Callback callback) {
+        submit(new Opener() {
+            @Override
+            public String getContentKey() throws IOException {
+                if (isHttp(uri)) {
+                    return "url:" + uri;
+                }
+                return "sha1:" + hashStream(context.getContentResolver().openInputStream(uri));
+            }
+
+            @Override
+            public MediaExtractor open() throws IOException {
+                return isHttp(uri) ? RNSampleDecoder.openDataSource(context, uri, dataSourceFactory)
+                        : RNSampleDecoder.openUri(context, uri);
+            }
+        }, buckets, callback);
+    }
+
+    /**
+     * Cancels the running analyses and stops the thread.
+     */
+    public synchronized void release() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private synchronized void submit(final Opener opener, int buckets, final Callback callback) {
+        final int bucketCount = Math.max(1, Math.min(MAX_BUCKETS, buckets));
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "RNSoundPlayerAnalyzer");
+                }
+            });
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    File cacheFile = getCacheFile(opener.getContentKey(), bucketCount);
+                    RNAudioAnalysis.Result result = readCache(cacheFile);
+                    if (result != null) {
+                        callback.onAnalyzed(result, true);
+                        return;
+                    }
+                    RNAudioAnalysis analysis = new RNAudioAnalysis(bucketCount);
+                    RNSampleDecoder.decode(opener.open(), analysis);
+                    result = analysis.finish();
+                    writeCache(cacheFile, result);
+                    callback.onAnalyzed(result, false);
+                } catch (IOException | RuntimeException e) {
+                    callback.onError(e);
+                }
+            }
+        });
+    }
+
+    private File getCacheFile(String contentKey, int buckets) {
+        String key = VERSION + ":" + buckets + ":" + contentKey;
+        return new File(new File(context.getCacheDir(), CACHE_FOLDER),
+                toHex(newDigest().digest(key.getBytes(Charset.forName("UTF-8")))) + ".json");
+    }
+
+    private static RNAudioAnalysis.Result readCache(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            FileInputStream stream = new FileInputStream(file);
+            try {
+                int read = 0;
+                while (read < bytes.length) {
+                    int count = stream.read(bytes, read, bytes.length - read);
+                    if (count < 0) {
+                        return null;
+                    }
+                    read += count;
+                }
+            } finally {
+                stream.close();
+            }
+            RNAudioAnalysis.Result result = RNAudioAnalysis.Result.fromJson(
+                    new JSONObject(new String(bytes, Charset.forName("UTF-8"))));
+            // Least recently used results are evicted first
+            file.setLastModified(System.currentTimeMillis());
+            return result;
+        } catch (IOException | JSONException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    private static void writeCache(File file, RNAudioAnalysis.Result result) {
+        File folder = file.getParentFile();
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            return;
+        }
+        // Written aside then renamed, so that a read never sees half a result
+        File temporary = new File(folder, file.getName() + ".tmp");
+        try {
+            FileOutputStream stream = new FileOutputStream(temporary);
+            try {
+                stream.write(result.toJson().toString().getBytes(Charset.forName("UTF-8")));
+            } finally {
+                stream.close();
+            }
+            if (!temporary.renameTo(file)) {
+                temporary.delete();
+            }
+        } catch (IOException | JSONException e) {
+            temporary.delete();
+            return;
+        }
+        trimCache(folder);
+    }
+
+    private static void trimCache(File folder) {
+        File[] files = folder.listFiles();
+        if (files == null || files.length <= MAX_CACHED_RESULTS) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+            }
+        });
+        for (int i = 0; i < files.length - MAX_CACHED_RESULTS; i++) {
+            files[i].delete();
+        }
+    }
+
+    private static boolean isHttp(Uri uri) {
+        String scheme = uri.getScheme();
+        return "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme);
+    }
+
+    private String hashContent(RNSoundResolver.Source source) throws IOException {
+        if (source.getClip() != null) {
+            MessageDigest digest = newDigest();
+            digest.update(source.getClip().getData());
+            return toHex(digest.digest());
+        } else if (source.getResourceId() != 0) {
+            return hashStream(context.getResources().openRawResource(source.getResourceId()));
+        }
+        return hashStream(context.getContentResolver().openInputStream(source.getUri()));
+    }
+
+    private static String hashStream(InputStream stream) throws IOException {
+        if (stream == null) {
+            throw new IOException("Cannot open sound");
+        }
+        try {
+            MessageDigest digest = newDigest();
+            byte[] buffer = new byte[64 * 1024];
+            int count;
+            while ((count = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+            return toHex(digest.digest());
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android version provides SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,380 @@
+package com.johnsonsu.rnsoundplayer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ShortBuffer;
+
+/**
+ * Waveform and loudness of a sound, computed chunk by chunk as it is decoded.
+ *
+ * Peaks are kept in at most twice the requested number of buckets, pairs being merged whenever
+ * they fill up, so memory does not grow with the length of the sound. Loudness is the integrated
+ * loudness of ITU-R BS.1770: K-weighted mean square over 400 ms blocks overlapping by 75%,
+ * gated at -70 LUFS and then 10 LU below the mean of the blocks left.
+ */
+public class RNAudioAnalysis implements RNSampleDecoder.PcmListener {
+    // ReplayGain 2.0 reference level
+    public static final double REPLAY_GAIN_REFERENCE_LUFS = -18;
+    private static final double ABSOLUTE_GATE_LUFS = -70;
+    private static final double RELATIVE_GATE_LU = -10;
+
+    public static class Result {
+        private final double durationMs;
+        private final int sampleRate;
+        private final int channelCount;
+        private final float[] min;
+        private final float[] max;
+        private final double rms;
+        private final double peak;
+        private final double loudness;
+
+        Result(double durationMs, int sampleRate, int channelCount, float[] min, float[] max,
+               double rms, double peak, double loudness) {
+            this.durationMs = durationMs;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+            this.min = min;
+            this.max = max;
+            this.rms = rms;
+            this.peak = peak;
+            this.loudness = loudness;
+        }
+
+        public double getDurationMs() {
+            return durationMs;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public int getChannelCount() {
+            return channelCount;
+        }
+
+        /**
+         * Lowest sample of each bucket, from -1 to 1, over all channels.
+         */
+        public float[] getMin() {
+            return min;
+        }
+
+        /**
+         * Highest sample of each bucket, from -1 to 1, over all channels.
+         */
+        public float[] getMax() {
+            return max;
+        }
+
+        /**
+         * Root mean square of all samples, from 0 to 1.
+         */
+        public double getRms() {
+            return rms;
+        }
+
+        /**
+         * Highest absolute sample, from 0 to 1.
+         */
+        public double getPeak() {
+            return peak;
+        }
+
+        /**
+         * Integrated loudness in LUFS, or NaN when the sound is silent below the absolute gate.
+         */
+        public double getLoudness() {
+            return loudness;
+        }
+
+        /**
+         * Gain in dB bringing the sound to the ReplayGain 2.0 reference, or NaN when silent.
+         */
+        public double getReplayGain() {
+            return REPLAY_GAIN_REFERENCE_LUFS - loudness;
+        }
+
+        public JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("durationMs", durationMs);
+            json.put("sampleRate", sampleRate);
+            json.put("channelCount", channelCount);
+            json.put("rms", rms);
+            json.put("peak", peak);
+            if (!Double.isNaN(loudness)) {
+                json.put("loudness", loudness);
+            }
+            JSONArray minArray = new JSONArray();
+            JSONArray maxArray = new JSONArray();
+            for (int i = 0; i < min.length; i++) {
+                minArray.put((double) min[i]);
+                maxArray.put((double) max[i]);
+            }
+            json.put("min", minArray);
+            json.put("max", maxArray);
+            return json;
+        }
+
+        public static Result fromJson(JSONObject json) throws JSONException {
+            JSONArray minArray = json.getJSONArray("min");
+            JSONArray maxArray = json.getJSONArray("max");
+            float[] min = new float[minArray.length()];
+            float[] max = new float[min.length];
+            for (int i = 0; i < min.length; i++) {
+                min[i] = (float) minArray.getDouble(i);
+                max[i] = (float) maxArray.getDouble(i);
+            }
+            return new Result(
+                    json.getDouble("durationMs"),
+                    json.getInt("sampleRate"),
+                    json.getInt("channelCount"),
+                    min,
+                    max,
+                    json.getDouble("rms"),
+                    json.getDouble("peak"),
+                    json.optDouble("loudness", Double.NaN));
+        }
+    }
+
+    private final int buckets;
+    private final float[] bucketMin;
+    private final float[] bucketMax;
+    private int bucketCount;
+    private long bucketFrames = 1;
+    private long framesInBucket;
+    private float currentMin = Float.MAX_VALUE;
+    private float currentMax = -Float.MAX_VALUE;
+
+    private int sampleRate;
+    private int channelCount;
+    private long frameCount;
+    private double sumSquares;
+    private int peak;
+
+    // K-weighting: a high shelf then a high pass, with a state per channel
+    private double[] weights;
+    private double shelfB0, shelfB1, shelfB2, shelfA1, shelfA2;
+    private double passA1, passA2;
+    private double[] shelfZ1, shelfZ2, passZ1, passZ2;
+
+    // Blocks of 400 ms are made of four 100 ms steps
+    private int stepFrames;
+    private int framesInStep;
+    private double stepEnergy;
+    private final double[] lastSteps = new double[3];
+    private int stepCount;
+    private double[] blockEnergies = new double[256];
+    private int blockCount;
+
+    /**
+     * @param buckets number of peak buckets of the result
+     */
+    public RNAudioAnalysis(int buckets) {
+        this.buckets = Math.max(1, buckets);
+        this.bucketMin = new float[2 * this.buckets];
+        this.bucketMax = new float[2 * this.buckets];
+    }
+
+    @Override
+    public void onFormat(int sampleRate, int channelCount, long durationUs) {
+        if (sampleRate == this.sampleRate && channelCount == this.channelCount) {
+            return;
+        }
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        if (frameCount == 0 && durationUs > 0) {
+            // Aim at the requested number of buckets; merging still bounds them if the duration was wrong
+            long durationFrames = durationUs * sampleRate / 1000000;
+            bucketFrames = Math.max(1, (durationFrames + buckets - 1) / buckets);
+        }
+        setUpLoudness();
+    }
+
+    @Override
+    public void onPcm(ShortBuffer pcm) throws IOException {
+        if (Thread.interrupted()) {
+            throw new InterruptedIOException("Analysis cancelled");
+        }
+        int frames = pcm.remaining() / channelCount;
+        int position = pcm.position();
+        for (int frame = 0; frame < frames; frame++) {
+            double weightedSquares = 0;
+            for (int channel = 0; channel < channelCount; channel++) {
+                int sample = pcm.get(position++);
+                float value = sample / 32768f;
+                if (value < currentMin) {
+                    currentMin = value;
+                }
+                if (value > currentMax) {
+                    currentMax = value;
+                }
+                int magnitude = Math.abs(sample);
+                if (magnitude > peak) {
+                    peak = magnitude;
+                }
+                sumSquares += (double) value * value;
+
+                double shelfOut = shelfB0 * value + shelfZ1[channel];
+                shelfZ1[channel] = shelfB1 * value - shelfA1 * shelfOut + shelfZ2[channel];
+                shelfZ2[channel] = shelfB2 * value - shelfA2 * shelfOut;
+                double passOut = shelfOut + passZ1[channel];
+                passZ1[channel] = -2 * shelfOut - passA1 * passOut + passZ2[channel];
+                passZ2[channel] = shelfOut - passA2 * passOut;
+                weightedSquares += weights[channel] * passOut * passOut;
+            }
+            frameCount++;
+            if (++framesInBucket == bucketFrames) {
+                pushBucket();
+            }
+            stepEnergy += weightedSquares;
+            if (++framesInStep == stepFrames) {
+                pushStep();
+            }
+        }
+        pcm.position(position);
+    }
+
+    public Result finish() {
+        if (framesInBucket > 0) {
+            pushBucket();
+        }
+        float[] min = new float[buckets];
+        float[] max = new float[buckets];
+        for (int i = 0; i < buckets && bucketCount > 0; i++) {
+            int from = (int) ((long) i * bucketCount / buckets);
+            int to = Math.max(from + 1, (int) ((long) (i + 1) * bucketCount / buckets));
+            float low = bucketMin[from];
+            float high = bucketMax[from];
+            for (int j = from + 1; j < to; j++) {
+                low = Math.min(low, bucketMin[j]);
+                high = Math.max(high, bucketMax[j]);
+            }
+            min[i] = low;
+            max[i] = high;
+        }
+        long sampleCount = frameCount * Math.max(1, channelCount);
+        return new Result(
+                sampleRate > 0 ? frameCount * 1000.0 / sampleRate : 0,
+                sampleRate,
+                channelCount,
+                min,
+                max,
+                sampleCount > 0 ? Math.sqrt(sumSquares / sampleCount) : 0,
+                peak / 32768.0,
+                getIntegratedLoudness());
+    }
+
+    private void pushBucket() {
+        bucketMin[bucketCount] = currentMin;
+        bucketMax[bucketCount] = currentMax;
+        bucketCount++;
+        framesInBucket = 0;
+        currentMin = Float.MAX_VALUE;
+        currentMax = -Float.MAX_VALUE;
+        if (bucketCount == bucketMin.length) {
+            for (int i = 0; i < buckets; i++) {
+                bucketMin[i] = Math.min(bucketMin[2 * i], bucketMin[2 * i + 1]);
+                bucketMax[i] = Math.max(bucketMax[2 * i], bucketMax[2 * i + 1]);
+            }
+            bucketCount = buckets;
+            bucketFrames *= 2;
+        }
+    }
+
+    private void pushStep() {
+        double energy = stepEnergy;
+        if (stepCount >= 3) {
+            double blockEnergy = (energy + lastSteps[0] + lastSteps[1] + lastSteps[2]) / (4.0 * stepFrames);
+            if (blockCount == blockEnergies.length) {
+                double[] grown = new double[blockEnergies.length * 2];
+                System.arraycopy(blockEnergies, 0, grown, 0, blockCount);
+                blockEnergies = grown;
+            }
+            blockEnergies[blockCount++] = blockEnergy;
+        }
+        lastSteps[2] = lastSteps[1];
+        lastSteps[1] = lastSteps[0];
+        lastSteps[0] = energy;
+        stepCount++;
+        stepEnergy = 0;
+        framesInStep = 0;
+    }
+
+    private double getIntegratedLoudness() {
+        double absoluteGate = toEnergy(ABSOLUTE_GATE_LUFS);
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (blockEnergies[i] > absoluteGate) {
+                sum += blockEnergies[i];
+                count++;
+            }
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double relativeGate = toEnergy(toLoudness(sum / count) + RELATIVE_GATE_LU);
+        sum = 0;
+        count = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (blockEnergies[i] > absoluteGate && blockEnergies[i] > relativeGate) {
+                sum += blockEnergies[i];
+                count++;
+            }
+        }
+        return count > 0 ? toLoudness(sum / count) : Double.NaN;
+    }
+
+    private static double toLoudness(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    private static double toEnergy(double loudness) {
+        return Math.pow(10, (loudness + 0.691) / 10);
+    }
+
+    /**
+     * Filter coefficients of BS.1770 for the sample rate, as derived in libebur128.
+     */
+    private void setUpLoudness() {
+        double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+        double q = 0.7071752369554196;
+        double vh = Math.pow(10, 3.999843853973347 / 20);
+        double vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1 + k / q + k * k;
+        shelfB0 = (vh + vb * k / q + k * k) / a0;
+        shelfB1 = 2 * (k * k - vh) / a0;
+        shelfB2 = (vh - vb * k / q + k * k) / a0;
+        shelfA1 = 2 * (k * k - 1) / a0;
+        shelfA2 = (1 - k / q + k * k) / a0;
+
+        k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+        q = 0.5003270373238773;
+        a0 = 1 + k / q + k * k;
+        passA1 = 2 * (k * k - 1) / a0;
+        passA2 = (1 - k / q + k * k) / a0;
+
+        shelfZ1 = new double[channelCount];
+        shelfZ2 = new double[channelCount];
+        passZ1 = new double[channelCount];
+        passZ2 = new double[channelCount];
+        weights = new double[channelCount];
+        for (int channel = 0; channel < channelCount; channel++) {
+            weights[channel] = 1;
+        }
+        if (channelCount == 6) {
+            // 5.1: the LFE channel is left out and the surround channels weigh 1.41
+            weights[3] = 0;
+            weights[4] = 1.41;
+            weights[5] = 1.41;
+        }
+        stepFrames = Math.max(1, sampleRate / 10);
+        framesInStep = 0;
+        stepEnergy = 0;
+        stepCount = 0;
+    }
+}
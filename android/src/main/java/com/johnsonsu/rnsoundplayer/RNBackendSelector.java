@@ -0,0 +1,152 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.net.Uri;
+
+import java.io.File;
+
+/**
+ * Picks the player backend used for a source.
+ *
+ * In auto mode, small local clips go to the sample engine and streams go to ExoPlayer, which has
+ * the url cache and the buffering profiles. Other local files go to whichever of MediaPlayer and
+ * ExoPlayer prepared that kind of source faster on this device, after trying each a few times.
+ * The mixer is only used when requested.
+ */
+public class RNBackendSelector {
+    public static final String AUTO = "auto";
+
+    public static final int SOURCE_RAW = 0;
+    public static final int SOURCE_FILE = 1;
+    public static final int SOURCE_STREAM = 2;
+
+    // Roughly 10 s of compressed audio, which decodes well under RNSamplePlayer.MAX_SAMPLE_BYTES
+    public static final long SAMPLE_MAX_SOURCE_BYTES = 160 * 1024;
+    private static final int MIN_SAMPLES = 3;
+
+    // Prepare latency of local sources, by source kind then exoplayer / mediaplayer
+    private final RNLatencyHistogram[][] prepareLatencies = {
+            {new RNLatencyHistogram(), new RNLatencyHistogram()},
+            {new RNLatencyHistogram(), new RNLatencyHistogram()},
+    };
+    private String backend = RNPlaybackMetrics.EXOPLAYER;
+
+    public static boolean isValid(String backend) {
+        return AUTO.equals(backend)
+                || RNPlaybackMetrics.EXOPLAYER.equals(backend)
+                || RNPlaybackMetrics.MEDIAPLAYER.equals(backend)
+                || RNPlaybackMetrics.SAMPLE.equals(backend)
+                || RNPlaybackMetrics.MIXER.equals(backend);
+    }
+
+    public static String backendOf(IRNMediaPlayer player) {
+        if (player instanceof RNSamplePlayer) {
+            return RNPlaybackMetrics.SAMPLE;
+        } else if (player instanceof RNMixerPlayer) {
+            return RNPlaybackMetrics.MIXER;
+        } else if (player instanceof RNMediaPlayer) {
+            return RNPlaybackMetrics.MEDIAPLAYER;
+        }
+        return RNPlaybackMetrics.EXOPLAYER;
+    }
+
+    public static int getSourceKind(Uri uri) {
+        String scheme = uri.getScheme();
+        if (scheme == null || "file".equalsIgnoreCase(scheme) || "content".equalsIgnoreCase(scheme)) {
+            return SOURCE_FILE;
+        } else if ("android.resource".equalsIgnoreCase(scheme) || "rawresource".equalsIgnoreCase(scheme)) {
+            return SOURCE_RAW;
+        }
+        return SOURCE_STREAM;
+    }
+
+    /**
+     * Returns the size of a file uri, or -1 when it is unknown.
+     */
+    public static long getSizeBytes(Uri uri) {
+        if (!"file".equalsIgnoreCase(uri.getScheme()) || uri.getPath() == null) {
+            return -1;
+        }
+        File file = new File(uri.getPath());
+        return file.isFile() ? file.length() : -1;
+    }
+
+    public synchronized void setBackend(String backend) {
+        this.backend = backend;
+    }
+
+    public synchronized String getBackend() {
+        return backend;
+    }
+
+    /**
+     * Backend of players that must be ExoPlayer or MediaPlayer, such as queues.
+     */
+    public synchronized String getQueueBackend() {
+        return RNPlaybackMetrics.MEDIAPLAYER.equals(backend) ? RNPlaybackMetrics.MEDIAPLAYER : RNPlaybackMetrics.EXOPLAYER;
+    }
+
+    /**
+     * Returns the backend for a source, using the requested backend when not null and the
+     * global one otherwise. sizeBytes is -1 when unknown.
+     */
+    public synchronized String select(String requested, int sourceKind, long sizeBytes) {
+        String backend = requested != null ? requested : this.backend;
+        // The sample engine and the mixer decode whole files up front, which defeats streaming
+        if ((RNPlaybackMetrics.SAMPLE.equals(backend) || RNPlaybackMetrics.MIXER.equals(backend))
+                && sourceKind == SOURCE_STREAM) {
+            backend = AUTO;
+        }
+        if (!AUTO.equals(backend)) {
+            return backend;
+        }
+        if (sourceKind == SOURCE_STREAM) {
+            return RNPlaybackMetrics.EXOPLAYER;
+        }
+        if (sizeBytes >= 0 && sizeBytes <= SAMPLE_MAX_SOURCE_BYTES) {
+            return RNPlaybackMetrics.SAMPLE;
+        }
+        return selectFasterLocalBackend(sourceKind);
+    }
+
+    public void recordPrepare(int sourceKind, String backend, long startedAtNs) {
+        RNLatencyHistogram histogram = getPrepareLatency(sourceKind, backend);
+        if (histogram != null) {
+            histogram.recordSince(startedAtNs);
+        }
+    }
+
+    public void reset() {
+        for (RNLatencyHistogram[] histograms : prepareLatencies) {
+            for (RNLatencyHistogram histogram : histograms) {
+                histogram.reset();
+            }
+        }
+    }
+
+    private String selectFasterLocalBackend(int sourceKind) {
+        RNLatencyHistogram mediaPlayer = getPrepareLatency(sourceKind, RNPlaybackMetrics.MEDIAPLAYER);
+        RNLatencyHistogram exoPlayer = getPrepareLatency(sourceKind, RNPlaybackMetrics.EXOPLAYER);
+        // Try each backend a few times before trusting the measurements, MediaPlayer first as it is lighter
+        if (mediaPlayer.getCount() < MIN_SAMPLES) {
+            return RNPlaybackMetrics.MEDIAPLAYER;
+        }
+        if (exoPlayer.getCount() < MIN_SAMPLES) {
+            return RNPlaybackMetrics.EXOPLAYER;
+        }
+        return mediaPlayer.getMeanMs() <= exoPlayer.getMeanMs()
+                ? RNPlaybackMetrics.MEDIAPLAYER
+                : RNPlaybackMetrics.EXOPLAYER;
+    }
+
+    private RNLatencyHistogram getPrepareLatency(int sourceKind, String backend) {
+        if (sourceKind == SOURCE_STREAM) {
+            return null;
+        }
+        if (RNPlaybackMetrics.EXOPLAYER.equals(backend)) {
+            return prepareLatencies[sourceKind][0];
+        } else if (RNPlaybackMetrics.MEDIAPLAYER.equals(backend)) {
+            return prepareLatencies[sourceKind][1];
+        }
+        return null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.LoadControl;
+
+/**
+ * Buffer sizes used by an ExoPlayer instance, trading start-up latency against memory.
+ */
+public class RNBufferingProfile {
+    public static final String DEFAULT = "default";
+    public static final String FAST_START = "fast-start";
+    public static final String MEMORY_LEAN = "memory-lean";
+    public static final String STREAM_ROBUST = "stream-robust";
+    public static final String CUSTOM = "custom";
+
+    public static final RNBufferingProfile DEFAULT_PROFILE = new RNBufferingProfile(DEFAULT,
+            DefaultLoadControl.DEFAULT_MIN_BUFFER_MS,
+            DefaultLoadControl.DEFAULT_MAX_BUFFER_MS,
+            DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS,
+            DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS,
+            0);
+    // Starts as soon as half a second is buffered
+    public static final RNBufferingProfile FAST_START_PROFILE = new RNBufferingProfile(FAST_START,
+            15000, 30000, 500, 2000, 0);
+    // Keeps at most 10 s and 2 MB ahead, for low-end devices and short sounds
+    public static final RNBufferingProfile MEMORY_LEAN_PROFILE = new RNBufferingProfile(MEMORY_LEAN,
+            5000, 10000, 1000, 2000, 2 * 1024 * 1024);
+    // Keeps up to 2 minutes ahead to ride out bad networks
+    public static final RNBufferingProfile STREAM_ROBUST_PROFILE = new RNBufferingProfile(STREAM_ROBUST,
+            60000, 120000, 2500, 5000, 0);
+
+    private final String name;
+    private final int minBufferMs;
+    private final int maxBufferMs;
+    private final int bufferForPlaybackMs;
+    private final int bufferForPlaybackAfterRebufferMs;
+    private final int targetBufferBytes;
+
+    private RNBufferingProfile(String name, int minBufferMs, int maxBufferMs, int bufferForPlaybackMs,
+                               int bufferForPlaybackAfterRebufferMs, int targetBufferBytes) {
+        this.name = name;
+        this.minBufferMs = minBufferMs;
+        this.maxBufferMs = maxBufferMs;
+        this.bufferForPlaybackMs = bufferForPlaybackMs;
+        this.bufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+        this.targetBufferBytes = targetBufferBytes;
+    }
+
+    /**
+     * Returns the predefined profile with the given name, or null if there is none.
+     */
+    public static RNBufferingProfile fromName(String name) {
+        if (DEFAULT.equals(name)) {
+            return DEFAULT_PROFILE;
+        } else if (FAST_START.equals(name)) {
+            return FAST_START_PROFILE;
+        } else if (MEMORY_LEAN.equals(name)) {
+            return MEMORY_LEAN_PROFILE;
+        } else if (STREAM_ROBUST.equals(name)) {
+            return STREAM_ROBUST_PROFILE;
+        }
+        return null;
+    }
+
+    /**
+     * Creates a custom profile, adjusting the values so that ExoPlayer accepts them: playback
+     * thresholds never exceed the minimum buffer, which never exceeds the maximum buffer.
+     */
+    public static RNBufferingProfile custom(int minBufferMs, int maxBufferMs, int bufferForPlaybackMs,
+                                            int bufferForPlaybackAfterRebufferMs, int targetBufferBytes) {
+        minBufferMs = Math.max(0, minBufferMs);
+        maxBufferMs = Math.max(minBufferMs, maxBufferMs);
+        bufferForPlaybackMs = Math.max(0, Math.min(minBufferMs, bufferForPlaybackMs));
+        bufferForPlaybackAfterRebufferMs = Math.max(0, Math.min(minBufferMs, bufferForPlaybackAfterRebufferMs));
+        return new RNBufferingProfile(CUSTOM, minBufferMs, maxBufferMs, bufferForPlaybackMs,
+                bufferForPlaybackAfterRebufferMs, Math.max(0, targetBufferBytes));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LoadControl buildLoadControl() {
+        DefaultLoadControl.Builder builder = new DefaultLoadControl.Builder()
+                .setBufferDurationsMs(minBufferMs, maxBufferMs, bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs);
+        if (targetBufferBytes > 0) {
+            builder.setTargetBufferBytes(targetBufferBytes)
+                    .setPrioritizeTimeOverSizeThresholds(false);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.Context;
+import android.media.AudioManager;
+import android.os.Build;
+
+/**
+ * Volume of the music stream, read from AudioManager so that no player is needed.
+ */
+public class RNDeviceVolume {
+    private RNDeviceVolume() {
+    }
+
+    /**
+     * Returns the volume of the music stream, from 0 to 1.
+     */
+    public static float getVolume(Context context) {
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        int maxVolume = audioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
+        int currentVolume = audioManager.getStreamVolume(AudioManager.STREAM_MUSIC);
+        return (float) currentVolume / (float) maxVolume;
+    }
+
+    /**
+     * Returns whether the music stream is muted, always false before API 23.
+     */
+    public static boolean isMuted(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return false;
+        }
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        return audioManager.isStreamMute(AudioManager.STREAM_MUSIC);
+    }
+}
@@ -5,28 +5,96 @@ import android.media.MediaPlayer;
 import android.net.Uri;
 
 import com.facebook.react.bridge.Promise;
+import com.google.android.exoplayer2.DefaultRenderersFactory;
 import com.google.android.exoplayer2.ExoPlaybackException;
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.MediaItem;
+import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.SeekParameters;
 import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.audio.AudioCapabilities;
+import com.google.android.exoplayer2.audio.AudioSink;
+import com.google.android.exoplayer2.audio.DefaultAudioSink;
 import com.google.android.exoplayer2.metadata.Metadata;
+import com.google.android.exoplayer2.source.DefaultMediaSourceFactory;
+import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.text.Cue;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
 import com.google.android.exoplayer2.upstream.RawResourceDataSource;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
-public class RNExoPlayer implements IRNMediaPlayer {
+import javax.annotation.Nullable;
+
+public class RNExoPlayer implements IRNQueuePlayer {
     private final Context context;
     private final SimpleExoPlayer exoPlayer;
+    private final RNBufferingProfile bufferingProfile;
+    private final RNLevelMeter levelMeter;
     private IRNOnErrorListener onErrorListener;
     private IRNOnPreparedListener onPreparedListener;
     private IRNOnCompletionListener onCompletionListener;
+    private IRNOnQueueIndexChangedListener onQueueIndexChangedListener;
+    private IRNOnSeekCompleteListener onSeekCompleteListener;
+    private DataSource.Factory dataSourceFactory;
+    private LoadErrorHandlingPolicy loadErrorHandlingPolicy;
+    private DefaultMediaSourceFactory mediaSourceFactory;
+    private int loops;
+    private int loopStartMs;
+    private int loopEndMs;
+    private int loopsRemaining;
+    // With a loop region starting after 0, the part before it is played once as its own item,
+    // followed by the clipped region that repeats
+    private boolean loopHead;
+    private final Timeline.Window window = new Timeline.Window();
+
+    private final RNPlaybackMetrics metrics;
+    private long prepareStartedAtNs;
+    private long playRequestedAtNs;
+    private long seekStartedAtNs;
+    private long rebufferStartedAtNs;
+    private boolean wasReady;
+    private boolean prepared;
 
     public RNExoPlayer(final Context context) {
+        this(context, RNBufferingProfile.DEFAULT_PROFILE, new RNPlaybackMetrics());
+    }
+
+    public RNExoPlayer(final Context context, final RNBufferingProfile bufferingProfile, final RNPlaybackMetrics metrics) {
+        this(context, bufferingProfile, metrics, null);
+    }
+
+    /**
+     * Inserts levelMeter in the audio chain; without one the default renderers are used.
+     */
+    public RNExoPlayer(final Context context, final RNBufferingProfile bufferingProfile, final RNPlaybackMetrics metrics,
+                       @Nullable final RNLevelMeter levelMeter) {
         this.context = context;
-        this.exoPlayer = new SimpleExoPlayer.Builder(context).build();
+        this.bufferingProfile = bufferingProfile;
+        this.metrics = metrics;
+        this.levelMeter = levelMeter;
+        final SimpleExoPlayer.Builder builder = levelMeter != null
+                ? new SimpleExoPlayer.Builder(context, new DefaultRenderersFactory(context) {
+                    @Override
+                    protected AudioSink buildAudioSink(Context context, boolean enableFloatOutput,
+                                                       boolean enableAudioTrackPlaybackParams, boolean enableOffload) {
+                        return new DefaultAudioSink(
+                                AudioCapabilities.getCapabilities(context),
+                                new DefaultAudioSink.DefaultAudioProcessorChain(levelMeter),
+                                enableFloatOutput,
+                                enableAudioTrackPlaybackParams,
+                                enableOffload);
+                    }
+                })
+                : new SimpleExoPlayer.Builder(context);
+        this.exoPlayer = builder
+                .setLoadControl(bufferingProfile.buildLoadControl())
+                .build();
         this.exoPlayer.addListener(new Player.Listener() {
             @Override
             public void onCues(List<Cue> cues) {
@@ -39,14 +107,53 @@ public class RNExoPlayer implements IRNMediaPlayer {
             }
 
             @Override
-            public void onIsLoadingChanged(boolean isLoading) {
-                if (onPreparedListener != null && isLoading == false) {
-                    onPreparedListener.onPrepared(RNExoPlayer.this);
+            public void onMediaItemTransition(MediaItem mediaItem, int reason) {
+                if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_REPEAT) {
+                    if (loopsRemaining > 0 && --loopsRemaining == 0) {
+                        // Play the last loop through to the end
+                        exoPlayer.setRepeatMode(Player.REPEAT_MODE_OFF);
+                    }
+                    return;
+                }
+                if (loopHead) {
+                    // Only the loop region repeats, the head plays once even when seeked back to
+                    exoPlayer.setRepeatMode(isInLoopRegion() && loopsRemaining != 0
+                            ? Player.REPEAT_MODE_ONE
+                            : Player.REPEAT_MODE_OFF);
+                    return;
+                }
+                if (onQueueIndexChangedListener != null) {
+                    onQueueIndexChangedListener.onQueueIndexChanged(RNExoPlayer.this, exoPlayer.getCurrentWindowIndex());
+                }
+            }
+
+            @Override
+            public void onIsPlayingChanged(boolean isPlaying) {
+                if (isPlaying && playRequestedAtNs != 0) {
+                    metrics.getFirstFrame().recordSince(playRequestedAtNs);
+                    playRequestedAtNs = 0;
+                }
+            }
+
+            @Override
+            @SuppressWarnings("deprecation")
+            public void onSeekProcessed() {
+                // A seek within the buffer does not leave the ready state
+                if (exoPlayer.getPlaybackState() == ExoPlayer.STATE_READY) {
+                    completeSeek();
                 }
             }
 
             @Override
             public void onPlaybackStateChanged(int state) {
+                recordStateMetrics(state);
+                // Reported once per prepare; later buffering cycles also end in the ready state
+                if (state == ExoPlayer.STATE_READY && !prepared) {
+                    prepared = true;
+                    if (onPreparedListener != null) {
+                        onPreparedListener.onPrepared(RNExoPlayer.this);
+                    }
+                }
                 if (state == ExoPlayer.STATE_ENDED && onCompletionListener != null) {
                     onCompletionListener.onCompletion(RNExoPlayer.this);
                 }
@@ -54,26 +161,27 @@ public class RNExoPlayer implements IRNMediaPlayer {
 
             @Override
             public void onPlayerError(ExoPlaybackException error) {
+                String whatString = "Unknown";
+                Exception e = null;
+                switch (error.type) {
+                    case ExoPlaybackException.TYPE_SOURCE:
+                        whatString = "Source error";
+                        e = error.getSourceException();
+                        break;
+                    case ExoPlaybackException.TYPE_REMOTE:
+                        whatString = "Remote error";
+                        break;
+                    case ExoPlaybackException.TYPE_RENDERER:
+                        whatString="Renderer error";
+                        e = error.getRendererException();
+                        break;
+                    case ExoPlaybackException.TYPE_UNEXPECTED:
+                        whatString = "Unexpected error";
+                        e = error.getUnexpectedException();
+                        break;
+                }
+                metrics.recordError(whatString);
                 if (onErrorListener != null) {
-                    String whatString = "Unknown";
-                    Exception e = null;
-                    switch (error.type) {
-                        case ExoPlaybackException.TYPE_SOURCE:
-                            whatString = "Source error";
-                            e = error.getSourceException();
-                            break;
-                        case ExoPlaybackException.TYPE_REMOTE:
-                            whatString = "Remote error";
-                            break;
-                        case ExoPlaybackException.TYPE_RENDERER:
-                            whatString="Renderer error";
-                            e = error.getRendererException();
-                            break;
-                        case ExoPlaybackException.TYPE_UNEXPECTED:
-                            whatString = "Unexpected error";
-                            e = error.getUnexpectedException();
-                            break;
-                    }
                     String extraString = "";
                     if (e != null) {
                         extraString = e.getMessage();
@@ -84,8 +192,42 @@ public class RNExoPlayer implements IRNMediaPlayer {
         });
     }
 
+    private void recordStateMetrics(int state) {
+        switch (state) {
+            case ExoPlayer.STATE_READY:
+                if (prepareStartedAtNs != 0) {
+                    metrics.getPrepare().recordSince(prepareStartedAtNs);
+                    prepareStartedAtNs = 0;
+                }
+                completeSeek();
+                if (rebufferStartedAtNs != 0) {
+                    metrics.getRebuffer().recordSince(rebufferStartedAtNs);
+                    rebufferStartedAtNs = 0;
+                }
+                wasReady = true;
+                break;
+            case ExoPlayer.STATE_BUFFERING:
+                // Buffering while playing, other than after a seek, is a stall
+                if (wasReady && seekStartedAtNs == 0 && this.exoPlayer.getPlayWhenReady()) {
+                    rebufferStartedAtNs = System.nanoTime();
+                }
+                break;
+            default:
+                wasReady = false;
+                rebufferStartedAtNs = 0;
+                break;
+        }
+    }
+
     @Override
     public void play() {
+        if (!this.exoPlayer.isPlaying()) {
+            playRequestedAtNs = System.nanoTime();
+        }
+        if (this.exoPlayer.getPlaybackState() == Player.STATE_IDLE && this.exoPlayer.getMediaItemCount() > 0) {
+            // Stopped: prepared again without reporting a new load
+            this.exoPlayer.prepare();
+        }
         this.exoPlayer.play();
     }
 
@@ -96,28 +238,213 @@ public class RNExoPlayer implements IRNMediaPlayer {
 
     @Override
     public void stop() {
+        // Frees the codec and AudioTrack; the next play() prepares the sound again
         this.exoPlayer.stop();
+        if (this.loopHead) {
+            this.exoPlayer.seekTo(0, 0);
+        } else {
+            this.exoPlayer.seekTo(0);
+        }
+    }
+
+    @Override
+    public void rewindPrepared() {
+        this.exoPlayer.pause();
+        if (this.loopHead) {
+            this.exoPlayer.seekTo(0, 0);
+        } else {
+            this.exoPlayer.seekTo(0);
+        }
     }
 
     @Override
     public void setUri(final Uri uri) throws IOException {
+        this.loopHead = this.loops != 0 && this.loopStartMs > 0;
+        final List<MediaItem> mediaItems = new ArrayList<>(2);
+        if (this.loopHead) {
+            mediaItems.add(new MediaItem.Builder()
+                    .setUri(uri)
+                    .setClipEndPositionMs(this.loopStartMs)
+                    .build());
+        }
+        final MediaItem.Builder builder = new MediaItem.Builder().setUri(uri);
+        if (this.loops != 0) {
+            // Clipping lets the loop region repeat without a seek
+            builder.setClipStartPositionMs(this.loopStartMs);
+            if (this.loopEndMs > 0) {
+                builder.setClipEndPositionMs(this.loopEndMs);
+            }
+        }
+        mediaItems.add(builder.build());
+        setMediaItems(mediaItems);
+    }
+
+    @Override
+    public void setQueue(final List<Uri> uris) throws IOException {
+        this.loops = 0;
+        this.loopHead = false;
+        final List<MediaItem> mediaItems = new ArrayList<>(uris.size());
+        for (Uri uri : uris) {
+            mediaItems.add(MediaItem.fromUri(uri));
+        }
+        setMediaItems(mediaItems);
+    }
+
+    private void setMediaItems(final List<MediaItem> mediaItems) {
+        if (this.mediaSourceFactory != null) {
+            final List<MediaSource> mediaSources = new ArrayList<>(mediaItems.size());
+            for (MediaItem mediaItem : mediaItems) {
+                mediaSources.add(this.mediaSourceFactory.createMediaSource(mediaItem));
+            }
+            this.exoPlayer.setMediaSources(mediaSources);
+        } else {
+            this.exoPlayer.setMediaItems(mediaItems);
+        }
+    }
+
+    private boolean isInLoopRegion() {
+        return this.exoPlayer.getCurrentWindowIndex() == 1;
+    }
+
+    /**
+     * Position of the current item in the sound, which is past the head in the loop region.
+     */
+    private long getItemOffsetMs() {
+        return this.loopHead && isInLoopRegion() ? this.loopStartMs : 0;
+    }
+
+    @Override
+    public void enqueue(final Uri uri) throws IOException {
         final MediaItem mediaItem = MediaItem.fromUri(uri);
-        this.exoPlayer.setMediaItem(mediaItem);
+        if (this.mediaSourceFactory != null) {
+            this.exoPlayer.addMediaSource(this.mediaSourceFactory.createMediaSource(mediaItem));
+        } else {
+            this.exoPlayer.addMediaItem(mediaItem);
+        }
+    }
+
+    @Override
+    public void skipNext() {
+        if (this.exoPlayer.hasNext()) {
+            this.exoPlayer.next();
+        }
+    }
+
+    @Override
+    public void skipPrevious() {
+        if (this.exoPlayer.hasPrevious()) {
+            this.exoPlayer.previous();
+        }
+    }
+
+    @Override
+    public int getQueueIndex() {
+        return this.exoPlayer.getCurrentWindowIndex();
+    }
+
+    @Override
+    public void setOnSeekCompleteListener(IRNOnSeekCompleteListener onSeekCompleteListener) {
+        this.onSeekCompleteListener = onSeekCompleteListener;
+    }
+
+    @Override
+    public void setOnQueueIndexChangedListener(IRNOnQueueIndexChangedListener onQueueIndexChangedListener) {
+        this.onQueueIndexChangedListener = onQueueIndexChangedListener;
+    }
+
+    @Override
+    public void setLooping(int loops, int loopStartMs, int loopEndMs) {
+        this.loops = loops;
+        this.loopStartMs = loopStartMs;
+        this.loopEndMs = loopEndMs;
+    }
+
+    public RNBufferingProfile getBufferingProfile() {
+        return this.bufferingProfile;
+    }
+
+    @Nullable
+    public RNLevelMeter getLevelMeter() {
+        return this.levelMeter;
+    }
+
+    @Override
+    public void release() {
+        this.exoPlayer.release();
+    }
+
+    /**
+     * Sets the data source used by the next {@link #setUri(Uri)} calls, e.g. to read through
+     * a cache. Passing null restores the default data source.
+     */
+    public void setDataSourceFactory(final DataSource.Factory dataSourceFactory) {
+        setDataSourceFactory(dataSourceFactory, null);
+    }
+
+    /**
+     * Same as {@link #setDataSourceFactory(DataSource.Factory)}, also deciding how failed loads
+     * are retried. A null policy keeps ExoPlayer's default.
+     */
+    public void setDataSourceFactory(final DataSource.Factory dataSourceFactory,
+                                     final LoadErrorHandlingPolicy loadErrorHandlingPolicy) {
+        if (dataSourceFactory == this.dataSourceFactory && loadErrorHandlingPolicy == this.loadErrorHandlingPolicy) {
+            return;
+        }
+        this.dataSourceFactory = dataSourceFactory;
+        this.loadErrorHandlingPolicy = loadErrorHandlingPolicy;
+        this.mediaSourceFactory = dataSourceFactory != null
+                ? new DefaultMediaSourceFactory(dataSourceFactory).setLoadErrorHandlingPolicy(loadErrorHandlingPolicy)
+                : null;
     }
 
     @Override
     public void prepare() throws IOException {
+        prepareStartedAtNs = System.nanoTime();
+        wasReady = false;
+        prepared = false;
+        this.loopsRemaining = this.loops;
+        // With a head, repeating starts once the loop region is reached
+        this.exoPlayer.setRepeatMode(this.loops != 0 && !this.loopHead ? Player.REPEAT_MODE_ONE : Player.REPEAT_MODE_OFF);
         this.exoPlayer.prepare();
     }
 
     @Override
     public void reset() {
+        this.loopHead = false;
         this.exoPlayer.stop(true);
     }
 
     @Override
     public void seekTo(int msec) {
-        this.exoPlayer.seekTo(msec);
+        seekTo(msec, SEEK_DEFAULT);
+    }
+
+    @Override
+    public void seekTo(int msec, int mode) {
+        SeekParameters seekParameters = mode == SEEK_EXACT ? SeekParameters.EXACT
+                : mode == SEEK_FAST ? SeekParameters.CLOSEST_SYNC
+                : SeekParameters.DEFAULT;
+        this.exoPlayer.setSeekParameters(seekParameters);
+        seekStartedAtNs = System.nanoTime();
+        if (!this.loopHead) {
+            this.exoPlayer.seekTo(msec);
+        } else if (msec >= this.loopStartMs) {
+            this.exoPlayer.seekTo(1, msec - this.loopStartMs);
+        } else {
+            this.exoPlayer.seekTo(0, msec);
+        }
+    }
+
+    private void completeSeek() {
+        if (seekStartedAtNs == 0) {
+            return;
+        }
+        long latencyMs = (System.nanoTime() - seekStartedAtNs) / 1000000;
+        seekStartedAtNs = 0;
+        metrics.getSeek().record(latencyMs);
+        if (onSeekCompleteListener != null) {
+            onSeekCompleteListener.onSeekComplete(this, latencyMs);
+        }
     }
 
     @Override
@@ -127,12 +454,30 @@ public class RNExoPlayer implements IRNMediaPlayer {
 
     @Override
     public long getCurrentPosition() {
-        return this.exoPlayer.getCurrentPosition();
+        return getItemOffsetMs() + this.exoPlayer.getCurrentPosition();
     }
 
     @Override
     public long getDuration() {
-        return this.exoPlayer.getDuration();
+        if (!this.loopHead) {
+            return this.exoPlayer.getDuration();
+        }
+        final Timeline timeline = this.exoPlayer.getCurrentTimeline();
+        if (timeline.getWindowCount() < 2) {
+            return C.TIME_UNSET;
+        }
+        final long loopDurationMs = timeline.getWindow(1, this.window).getDurationMs();
+        return loopDurationMs == C.TIME_UNSET ? C.TIME_UNSET : this.loopStartMs + loopDurationMs;
+    }
+
+    @Override
+    public long getBufferedPosition() {
+        return getItemOffsetMs() + this.exoPlayer.getBufferedPosition();
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return this.exoPlayer.isPlaying();
     }
 
     @Override
@@ -156,6 +501,12 @@ public class RNExoPlayer implements IRNMediaPlayer {
         setUri(uri);
     }
 
+    @Override
+    public void setSoundBankClip(RNSoundBank.Clip clip) throws IOException {
+        setDataSourceFactory(clip.getBank().getDataSourceFactory());
+        setUri(clip.getUri());
+    }
+
     @Override
     public void isDeviceMuted(Promise promise) {
         promise.resolve(exoPlayer.isDeviceMuted());
@@ -0,0 +1,96 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Network settings of streamed urls: timeouts, headers sent with every request and retries.
+ *
+ * Requests go through a client derived from a base OkHttpClient, normally the one React Native
+ * uses for fetch, so that streams share its connection pool and keep-alive connections instead
+ * of opening new ones for each range request.
+ */
+public class RNHttpConfig {
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 8000;
+    public static final int DEFAULT_READ_TIMEOUT_MS = 8000;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final int DEFAULT_RETRY_BASE_DELAY_MS = 500;
+    public static final int DEFAULT_RETRY_MAX_DELAY_MS = 8000;
+
+    public static final RNHttpConfig DEFAULT_CONFIG = new RNHttpConfig(
+            DEFAULT_CONNECT_TIMEOUT_MS,
+            DEFAULT_READ_TIMEOUT_MS,
+            null,
+            Collections.<String, String>emptyMap(),
+            new RNRetryPolicy(DEFAULT_MAX_RETRIES, DEFAULT_RETRY_BASE_DELAY_MS, DEFAULT_RETRY_MAX_DELAY_MS));
+
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    private final String userAgent;
+    private final Map<String, String> headers;
+    private final RNRetryPolicy retryPolicy;
+
+    private RNHttpConfig(int connectTimeoutMs, int readTimeoutMs, String userAgent,
+                         Map<String, String> headers, RNRetryPolicy retryPolicy) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        this.userAgent = userAgent;
+        this.headers = headers;
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Creates a config. A timeout of 0 means no timeout; negative values are treated as 0.
+     */
+    public static RNHttpConfig create(int connectTimeoutMs, int readTimeoutMs, String userAgent,
+                                      Map<String, String> headers, int maxRetries,
+                                      int retryBaseDelayMs, int retryMaxDelayMs) {
+        return new RNHttpConfig(
+                Math.max(0, connectTimeoutMs),
+                Math.max(0, readTimeoutMs),
+                userAgent,
+                Collections.unmodifiableMap(new HashMap<>(headers)),
+                new RNRetryPolicy(maxRetries, retryBaseDelayMs, retryMaxDelayMs));
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public RNRetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Builds the http data sources. The client is derived with newBuilder(), which keeps the
+     * connection pool and dispatcher of the base client.
+     */
+    public DataSource.Factory buildDataSourceFactory(OkHttpClient baseClient, TransferListener transferListener) {
+        OkHttpClient client = baseClient.newBuilder()
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .followRedirects(true)
+                .followSslRedirects(true)
+                .build();
+        return new OkHttpDataSource.Factory(client)
+                .setUserAgent(userAgent)
+                .setDefaultRequestProperties(headers)
+                .setTransferListener(transferListener);
+    }
+}
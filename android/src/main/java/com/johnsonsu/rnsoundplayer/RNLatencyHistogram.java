@@ -0,0 +1,75 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Fixed-bucket latency histogram. Recording is a bucket search and a few increments, with no
+ * allocation; percentiles are reported as the upper bound of the bucket they fall in.
+ */
+public class RNLatencyHistogram {
+    private static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+    private final long[] counts = new long[BUCKET_BOUNDS_MS.length + 1];
+    private long count;
+    private long sumMs;
+    private long maxMs;
+
+    public synchronized void record(long valueMs) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MS.length && valueMs > BUCKET_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        count++;
+        sumMs += valueMs;
+        maxMs = Math.max(maxMs, valueMs);
+    }
+
+    public void recordSince(long startedAtNs) {
+        record((System.nanoTime() - startedAtNs) / 1000000);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMeanMs() {
+        return count > 0 ? (double) sumMs / count : 0;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        sumMs = 0;
+        maxMs = 0;
+    }
+
+    public synchronized WritableMap toWritableMap() {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("count", count);
+        map.putDouble("meanMs", getMeanMs());
+        map.putDouble("maxMs", maxMs);
+        map.putDouble("p50Ms", percentile(0.5));
+        map.putDouble("p95Ms", percentile(0.95));
+        map.putDouble("p99Ms", percentile(0.99));
+        return map;
+    }
+
+    private long percentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BUCKET_BOUNDS_MS.length ? Math.min(BUCKET_BOUNDS_MS[i], maxMs) : maxMs;
+            }
+        }
+        return maxMs;
+    }
+}
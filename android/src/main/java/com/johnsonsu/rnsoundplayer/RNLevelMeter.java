@@ -0,0 +1,158 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.BaseAudioProcessor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pass-through audio processor measuring the peak and RMS level of each channel of the audio
+ * handed to the AudioTrack, which is ahead of the speaker by the track's buffer.
+ *
+ * The audio thread only writes into a preallocated ring of SLOT_MS slots; {@link #read} takes
+ * the last slots from any thread.
+ */
+public class RNLevelMeter extends BaseAudioProcessor {
+    public static final int MAX_CHANNELS = 8;
+    public static final int SLOT_MS = 10;
+    private static final int SLOT_COUNT = 128;
+    // Readers stay half a ring behind the writer
+    public static final int MAX_WINDOW_MS = SLOT_COUNT / 2 * SLOT_MS;
+    // No new audio for this long, e.g. when paused, reads as silence
+    private static final long STALE_NS = 250 * 1000000L;
+
+    private final float[] peaks = new float[SLOT_COUNT * MAX_CHANNELS];
+    private final float[] meanSquares = new float[SLOT_COUNT * MAX_CHANNELS];
+    private final float[] slotPeaks = new float[MAX_CHANNELS];
+    private final double[] slotSums = new double[MAX_CHANNELS];
+    private int slotFrames;
+    private int framesPerSlot;
+    private volatile int channelCount;
+    private volatile long slotsWritten;
+    private volatile long lastSlotAtNs;
+    private volatile boolean enabled = true;
+
+    /**
+     * Stops or resumes measuring. A disabled meter is left out of the audio chain from the next
+     * format change or seek, until then it only copies the audio through.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Fills peak and rms, each of at least MAX_CHANNELS values in 0..1, with the levels of the
+     * last windowMs of audio. Returns the channel count, 0 if nothing was played recently.
+     */
+    public int read(int windowMs, float[] peak, float[] rms) {
+        int channels = this.channelCount;
+        long written = this.slotsWritten;
+        if (!this.enabled || channels == 0 || written == 0
+                || System.nanoTime() - this.lastSlotAtNs > STALE_NS) {
+            return 0;
+        }
+        int slots = (int) Math.min(written, Math.max(1, Math.min(MAX_WINDOW_MS, windowMs) / SLOT_MS));
+        for (int c = 0; c < channels; c++) {
+            peak[c] = 0;
+            rms[c] = 0;
+        }
+        for (long s = written - slots; s < written; s++) {
+            int base = (int) (s % SLOT_COUNT) * MAX_CHANNELS;
+            for (int c = 0; c < channels; c++) {
+                peak[c] = Math.max(peak[c], this.peaks[base + c]);
+                rms[c] += this.meanSquares[base + c];
+            }
+        }
+        for (int c = 0; c < channels; c++) {
+            rms[c] = (float) Math.sqrt(rms[c] / slots);
+        }
+        return channels;
+    }
+
+    @Override
+    protected AudioFormat onConfigure(AudioFormat inputAudioFormat) throws UnhandledAudioFormatException {
+        // Anything else is played unmetered rather than failing playback
+        if (!this.enabled
+                || inputAudioFormat.encoding != C.ENCODING_PCM_16BIT
+                || inputAudioFormat.channelCount > MAX_CHANNELS) {
+            return AudioFormat.NOT_SET;
+        }
+        return inputAudioFormat;
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        int position = inputBuffer.position();
+        int limit = inputBuffer.limit();
+        if (position == limit) {
+            return;
+        }
+        if (this.enabled) {
+            measure(inputBuffer, position, limit);
+        }
+        ByteBuffer buffer = replaceOutputBuffer(limit - position);
+        buffer.put(inputBuffer);
+        buffer.flip();
+    }
+
+    private void measure(ByteBuffer inputBuffer, int position, int limit) {
+        int channels = this.inputAudioFormat.channelCount;
+        int frameBytes = channels * 2;
+        for (int i = position; i + frameBytes <= limit; ) {
+            for (int c = 0; c < channels; c++, i += 2) {
+                float sample = inputBuffer.getShort(i) / 32768f;
+                float level = Math.abs(sample);
+                if (level > this.slotPeaks[c]) {
+                    this.slotPeaks[c] = level;
+                }
+                this.slotSums[c] += sample * sample;
+            }
+            if (++this.slotFrames == this.framesPerSlot) {
+                completeSlot(channels);
+            }
+        }
+    }
+
+    private void completeSlot(int channels) {
+        int base = (int) (this.slotsWritten % SLOT_COUNT) * MAX_CHANNELS;
+        for (int c = 0; c < channels; c++) {
+            this.peaks[base + c] = this.slotPeaks[c];
+            this.meanSquares[base + c] = (float) (this.slotSums[c] / this.slotFrames);
+            this.slotPeaks[c] = 0;
+            this.slotSums[c] = 0;
+        }
+        this.slotFrames = 0;
+        this.lastSlotAtNs = System.nanoTime();
+        // Publishes the slot; there is a single writer
+        this.slotsWritten = this.slotsWritten + 1;
+    }
+
+    @Override
+    protected void onFlush() {
+        clearSlot();
+        if (isActive()) {
+            this.framesPerSlot = Math.max(1, this.inputAudioFormat.sampleRate * SLOT_MS / 1000);
+            this.channelCount = this.inputAudioFormat.channelCount;
+        } else {
+            this.channelCount = 0;
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        clearSlot();
+        this.channelCount = 0;
+    }
+
+    private void clearSlot() {
+        for (int c = 0; c < MAX_CHANNELS; c++) {
+            this.slotPeaks[c] = 0;
+            this.slotSums[c] = 0;
+        }
+        this.slotFrames = 0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.annotation.TargetApi;
+import android.media.MediaDataSource;
+import android.net.Uri;
+import android.os.Build;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import java.io.IOException;
+
+/**
+ * Lets MediaExtractor read a sound through an ExoPlayer data source, such as the url cache of
+ * {@link RNStreamCache}, instead of opening the url itself.
+ *
+ * Reads are mostly sequential, so the data source stays open between them and is only opened
+ * again at the new position when the extractor jumps.
+ */
+@TargetApi(Build.VERSION_CODES.M)
+public class RNMediaDataSource extends MediaDataSource {
+    private final DataSource.Factory dataSourceFactory;
+    private final Uri uri;
+    private DataSource dataSource;
+    private long position;
+    private long size = C.LENGTH_UNSET;
+    private boolean sizeKnown;
+
+    public RNMediaDataSource(DataSource.Factory dataSourceFactory, Uri uri) {
+        this.dataSourceFactory = dataSourceFactory;
+        this.uri = uri;
+    }
+
+    @Override
+    public synchronized int readAt(long position, byte[] buffer, int offset, int size) throws IOException {
+        if (size == 0) {
+            return 0;
+        }
+        if (sizeKnown && this.size != C.LENGTH_UNSET && position >= this.size) {
+            return -1;
+        }
+        if (dataSource == null || position != this.position) {
+            open(position);
+        }
+        int read = dataSource.read(buffer, offset, size);
+        if (read == C.RESULT_END_OF_INPUT) {
+            return -1;
+        }
+        this.position += read;
+        return read;
+    }
+
+    /**
+     * Returns the size in bytes, or -1 when the server does not tell it.
+     */
+    @Override
+    public synchronized long getSize() throws IOException {
+        if (!sizeKnown) {
+            open(0);
+        }
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeDataSource();
+    }
+
+    private void open(long position) throws IOException {
+        closeDataSource();
+        DataSource dataSource = dataSourceFactory.createDataSource();
+        long length = dataSource.open(new DataSpec(uri, position, C.LENGTH_UNSET));
+        if (!sizeKnown) {
+            size = length != C.LENGTH_UNSET ? position + length : C.LENGTH_UNSET;
+            sizeKnown = true;
+        }
+        this.dataSource = dataSource;
+        this.position = position;
+    }
+
+    private void closeDataSource() throws IOException {
+        if (dataSource != null) {
+            DataSource closing = dataSource;
+            dataSource = null;
+            closing.close();
+        }
+    }
+}
@@ -2,95 +2,279 @@ package com.johnsonsu.rnsoundplayer;
 
 import android.content.Context;
 import android.content.res.AssetFileDescriptor;
-import android.media.AudioManager;
 import android.media.MediaPlayer;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
-public class RNMediaPlayer implements IRNMediaPlayer {
-    private final MediaPlayer mediaPlayer;
+public class RNMediaPlayer implements IRNQueuePlayer {
+    private MediaPlayer mediaPlayer;
     private final Context context;
     private final ReactApplicationContext reactApplicationContext;
     private IRNOnErrorListener onErrorListener;
     private IRNOnPreparedListener onPreparedListener;
     private IRNOnCompletionListener onCompletionListener;
+    private IRNOnQueueIndexChangedListener onQueueIndexChangedListener;
+    private IRNOnSeekCompleteListener onSeekCompleteListener;
+
+    // Queue playback chains a second MediaPlayer with setNextMediaPlayer, so the next source
+    // is prepared while the current one plays
+    private final List<Uri> queue = new ArrayList<>();
+    private int queueIndex = -1;
+    private MediaPlayer nextMediaPlayer;
+    private boolean nextMediaPlayerReady;
+    private boolean prepared;
+    private boolean playWhenPrepared;
+    private int pendingSeekMs = -1;
+    private int pendingSeekMode;
+    // Only streams report buffering; -1 until they do
+    private int bufferedPercent = -1;
+    private float volume = 1.0f;
+
+    // Looping other than a whole file forever restarts from the loop start on completion, or
+    // when a check scheduled for the loop end finds the position past it
+    private final Handler handler;
+    private final Runnable loopEndCheck = new Runnable() {
+        @Override
+        public void run() {
+            checkLoopEnd();
+        }
+    };
+    private int loops;
+    private int loopStartMs;
+    private int loopEndMs;
+    private int loopsRemaining;
+
+    private final RNPlaybackMetrics metrics;
+    private long prepareStartedAtNs;
+    private long seekStartedAtNs;
+    private long rebufferStartedAtNs;
 
     public RNMediaPlayer(Context context, ReactApplicationContext reactApplicationContext) {
+        this(context, reactApplicationContext, new RNPlaybackMetrics());
+    }
+
+    public RNMediaPlayer(Context context, ReactApplicationContext reactApplicationContext, RNPlaybackMetrics metrics) {
         mediaPlayer = new MediaPlayer();
         this.context = context;
         this.reactApplicationContext = reactApplicationContext;
+        this.metrics = metrics;
+        Looper looper = Looper.myLooper();
+        this.handler = new Handler(looper != null ? looper : Looper.getMainLooper());
+        setListeners(mediaPlayer);
+    }
+
+    private void setListeners(MediaPlayer mediaPlayer) {
         mediaPlayer.setOnErrorListener(new MediaPlayer.OnErrorListener() {
             @Override
             public boolean onError(MediaPlayer mp, int what, int extra) {
-                if (onErrorListener != null) {
-                    String whatString = "Media Error Unknown";
-                    if (MediaPlayer.MEDIA_ERROR_SERVER_DIED == what) {
-                        whatString = "Media Error Server Died";
-                    }
-                    String extraString = "Unknown";
-                    switch (extra) {
-                        case MediaPlayer.MEDIA_ERROR_IO:
-                            extraString = "Media Error IO";
-                            break;
-                        case MediaPlayer.MEDIA_ERROR_MALFORMED:
-                            extraString = "Media Error Malformed";
-                            break;
-                        case MediaPlayer.MEDIA_ERROR_UNSUPPORTED:
-                            extraString = "Media Error Unsupported";
-                            break;
-                        case MediaPlayer.MEDIA_ERROR_TIMED_OUT:
-                            extraString = "Media Error Timed Out";
-                            break;
-                        case -2147483648:
-                            extraString = "Low-level System Error";
-                            break;
-                    }
-                    return onErrorListener.onError(
-                            RNMediaPlayer.this,
-                            what,
-                            extra,
-                            whatString,
-                            extraString);
-                }
-                return false;
+                return notifyError(what, extra);
             }
         });
         mediaPlayer.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
             @Override
             public void onPrepared(MediaPlayer mp) {
+                if (prepareStartedAtNs != 0) {
+                    metrics.getPrepare().recordSince(prepareStartedAtNs);
+                    prepareStartedAtNs = 0;
+                }
+                prepared = true;
+                // The first pass plays the part before the loop region too; restartLoop()
+                // seeks to the loop start for the repeats
+                if (pendingSeekMs >= 0) {
+                    seekTo(pendingSeekMs, pendingSeekMode);
+                    pendingSeekMs = -1;
+                }
                 if (onPreparedListener != null) {
                     onPreparedListener.onPrepared(RNMediaPlayer.this);
                 }
+                if (playWhenPrepared) {
+                    playWhenPrepared = false;
+                    startAndRecord();
+                }
+                prepareNextMediaPlayer();
             }
         });
         mediaPlayer.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
             @Override
             public void onCompletion(MediaPlayer mp) {
+                if (nextMediaPlayerReady) {
+                    // The next player already started, make it the current one
+                    advanceToNextMediaPlayer();
+                    return;
+                }
+                if (queueIndex >= 0 && queueIndex + 1 < queue.size()) {
+                    // The next item is still preparing or failed to: load it on this player,
+                    // where a failure is reported like any other
+                    try {
+                        skipTo(queueIndex + 1, true);
+                    } catch (IOException e) {
+                        notifyError(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_IO);
+                    }
+                    return;
+                }
+                if (restartLoop()) {
+                    return;
+                }
                 if (onCompletionListener != null) {
                     onCompletionListener.onCompletion(RNMediaPlayer.this);
                 }
             }
         });
+        mediaPlayer.setOnSeekCompleteListener(new MediaPlayer.OnSeekCompleteListener() {
+            @Override
+            public void onSeekComplete(MediaPlayer mp) {
+                // Loop restarts seek too, but are not timed
+                if (seekStartedAtNs != 0) {
+                    long latencyMs = (System.nanoTime() - seekStartedAtNs) / 1000000;
+                    seekStartedAtNs = 0;
+                    metrics.getSeek().record(latencyMs);
+                    if (onSeekCompleteListener != null) {
+                        onSeekCompleteListener.onSeekComplete(RNMediaPlayer.this, latencyMs);
+                    }
+                }
+                scheduleLoopEndCheck();
+            }
+        });
+        mediaPlayer.setOnBufferingUpdateListener(new MediaPlayer.OnBufferingUpdateListener() {
+            @Override
+            public void onBufferingUpdate(MediaPlayer mp, int percent) {
+                bufferedPercent = percent;
+            }
+        });
+        mediaPlayer.setOnInfoListener(new MediaPlayer.OnInfoListener() {
+            @Override
+            public boolean onInfo(MediaPlayer mp, int what, int extra) {
+                if (what == MediaPlayer.MEDIA_INFO_BUFFERING_START) {
+                    rebufferStartedAtNs = System.nanoTime();
+                } else if (what == MediaPlayer.MEDIA_INFO_BUFFERING_END && rebufferStartedAtNs != 0) {
+                    metrics.getRebuffer().recordSince(rebufferStartedAtNs);
+                    rebufferStartedAtNs = 0;
+                }
+                return false;
+            }
+        });
+    }
+
+    private boolean notifyError(int what, int extra) {
+        String whatString = "Media Error Unknown";
+        if (MediaPlayer.MEDIA_ERROR_SERVER_DIED == what) {
+            whatString = "Media Error Server Died";
+        }
+        metrics.recordError(whatString);
+        if (onErrorListener != null) {
+            String extraString = "Unknown";
+            switch (extra) {
+                case MediaPlayer.MEDIA_ERROR_IO:
+                    extraString = "Media Error IO";
+                    break;
+                case MediaPlayer.MEDIA_ERROR_MALFORMED:
+                    extraString = "Media Error Malformed";
+                    break;
+                case MediaPlayer.MEDIA_ERROR_UNSUPPORTED:
+                    extraString = "Media Error Unsupported";
+                    break;
+                case MediaPlayer.MEDIA_ERROR_TIMED_OUT:
+                    extraString = "Media Error Timed Out";
+                    break;
+                case -2147483648:
+                    extraString = "Low-level System Error";
+                    break;
+            }
+            return onErrorListener.onError(
+                    RNMediaPlayer.this,
+                    what,
+                    extra,
+                    whatString,
+                    extraString);
+        }
+        return false;
+    }
+
+    private void startAndRecord() {
+        // MediaPlayer has no callback for the first rendered audio, start() returning is the closest
+        long startedAtNs = System.nanoTime();
+        mediaPlayer.start();
+        metrics.getFirstFrame().recordSince(startedAtNs);
+        scheduleLoopEndCheck();
+    }
+
+    private boolean restartLoop() {
+        if (loops == 0 || loopsRemaining == 0) {
+            return false;
+        }
+        if (loopsRemaining > 0) {
+            loopsRemaining--;
+        }
+        mediaPlayer.seekTo(loopStartMs);
+        mediaPlayer.start();
+        return true;
+    }
+
+    private void scheduleLoopEndCheck() {
+        handler.removeCallbacks(loopEndCheck);
+        if (loops != 0 && loopEndMs > 0 && mediaPlayer.isPlaying()) {
+            handler.postDelayed(loopEndCheck, Math.max(0, loopEndMs - mediaPlayer.getCurrentPosition()));
+        }
+    }
+
+    private void checkLoopEnd() {
+        if (!mediaPlayer.isPlaying()) {
+            return;
+        }
+        if (mediaPlayer.getCurrentPosition() < loopEndMs) {
+            scheduleLoopEndCheck();
+        } else if (!restartLoop()) {
+            mediaPlayer.pause();
+            if (onCompletionListener != null) {
+                onCompletionListener.onCompletion(RNMediaPlayer.this);
+            }
+        }
     }
 
     @Override
     public void play() {
-        mediaPlayer.start();
+        if (!prepared) {
+            // MediaPlayer cannot start while preparing
+            playWhenPrepared = true;
+            return;
+        }
+        startAndRecord();
     }
 
     @Override
     public void pause() {
-        mediaPlayer.pause();
+        handler.removeCallbacks(loopEndCheck);
+        playWhenPrepared = false;
+        if (mediaPlayer.isPlaying()) {
+            mediaPlayer.pause();
+        }
     }
 
     @Override
     public void stop() {
-        mediaPlayer.stop();
+        handler.removeCallbacks(loopEndCheck);
+        playWhenPrepared = false;
+        if (prepared) {
+            // A stopped MediaPlayer must be prepared again; rewinding keeps it ready to play
+            if (mediaPlayer.isPlaying()) {
+                mediaPlayer.pause();
+            }
+            mediaPlayer.seekTo(0);
+        }
+    }
+
+    @Override
+    public void rewindPrepared() {
+        stop();
     }
 
     @Override
@@ -100,32 +284,220 @@ public class RNMediaPlayer implements IRNMediaPlayer {
 
     @Override
     public void prepare() throws IOException {
+        prepareStartedAtNs = System.nanoTime();
+        prepared = false;
+        bufferedPercent = -1;
+        loopsRemaining = loops;
+        // Native looping is gapless but only covers the whole file forever
+        mediaPlayer.setLooping(loops < 0 && loopStartMs == 0 && loopEndMs == 0);
         mediaPlayer.prepareAsync();
     }
 
+    @Override
+    public void setLooping(int loops, int loopStartMs, int loopEndMs) {
+        this.loops = loops;
+        this.loopStartMs = loopStartMs;
+        this.loopEndMs = loopEndMs;
+    }
+
     @Override
     public void reset() {
+        handler.removeCallbacks(loopEndCheck);
+        releaseNextMediaPlayer();
+        queue.clear();
+        queueIndex = -1;
+        prepared = false;
+        playWhenPrepared = false;
+        pendingSeekMs = -1;
+        bufferedPercent = -1;
         mediaPlayer.reset();
     }
 
+    @Override
+    public void release() {
+        reset();
+        mediaPlayer.release();
+    }
+
     @Override
     public void seekTo(int msec) {
-        mediaPlayer.seekTo(msec);
+        seekTo(msec, SEEK_DEFAULT);
+    }
+
+    @Override
+    public void seekTo(int msec, int mode) {
+        if (!prepared) {
+            pendingSeekMs = msec;
+            pendingSeekMode = mode;
+            return;
+        }
+        seekStartedAtNs = System.nanoTime();
+        if (mode != SEEK_DEFAULT && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            mediaPlayer.seekTo(msec, mode == SEEK_EXACT ? MediaPlayer.SEEK_CLOSEST : MediaPlayer.SEEK_CLOSEST_SYNC);
+        } else {
+            // Before API 26 MediaPlayer always seeks to the previous sync frame
+            mediaPlayer.seekTo(msec);
+        }
+    }
+
+    @Override
+    public void setOnSeekCompleteListener(IRNOnSeekCompleteListener onSeekCompleteListener) {
+        this.onSeekCompleteListener = onSeekCompleteListener;
     }
 
     @Override
     public void setVolume(float volume) {
+        this.volume = volume;
         mediaPlayer.setVolume(volume, volume);
     }
 
     @Override
     public long getCurrentPosition() {
+        if (!prepared) {
+            return Math.max(pendingSeekMs, 0);
+        }
         return mediaPlayer.getCurrentPosition();
     }
 
     @Override
     public long getDuration() {
-        return mediaPlayer.getDuration();
+        return prepared ? mediaPlayer.getDuration() : 0;
+    }
+
+    @Override
+    public long getBufferedPosition() {
+        long durationMs = getDuration();
+        return bufferedPercent >= 0 ? durationMs * bufferedPercent / 100 : durationMs;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mediaPlayer.isPlaying();
+    }
+
+    @Override
+    public void setQueue(List<Uri> uris) throws IOException {
+        reset();
+        loops = 0;
+        queue.addAll(uris);
+        if (!queue.isEmpty()) {
+            queueIndex = 0;
+            mediaPlayer.setDataSource(context, queue.get(0));
+        }
+    }
+
+    @Override
+    public void enqueue(Uri uri) throws IOException {
+        queue.add(uri);
+        if (queueIndex < 0) {
+            queueIndex = 0;
+            mediaPlayer.setDataSource(context, uri);
+        } else if (queueIndex == queue.size() - 2 && nextMediaPlayer == null) {
+            prepareNextMediaPlayer();
+        }
+    }
+
+    @Override
+    public void skipNext() throws IOException {
+        if (queueIndex + 1 < queue.size()) {
+            skipTo(queueIndex + 1, mediaPlayer.isPlaying());
+        }
+    }
+
+    @Override
+    public void skipPrevious() throws IOException {
+        if (queueIndex > 0) {
+            skipTo(queueIndex - 1, mediaPlayer.isPlaying());
+        }
+    }
+
+    @Override
+    public int getQueueIndex() {
+        return queueIndex;
+    }
+
+    @Override
+    public void setOnQueueIndexChangedListener(IRNOnQueueIndexChangedListener onQueueIndexChangedListener) {
+        this.onQueueIndexChangedListener = onQueueIndexChangedListener;
+    }
+
+    private void skipTo(int index, boolean play) throws IOException {
+        releaseNextMediaPlayer();
+        playWhenPrepared = play;
+        prepared = false;
+        bufferedPercent = -1;
+        mediaPlayer.reset();
+        queueIndex = index;
+        mediaPlayer.setDataSource(context, queue.get(index));
+        mediaPlayer.prepareAsync();
+        notifyQueueIndexChanged();
+    }
+
+    private void prepareNextMediaPlayer() {
+        if (queueIndex < 0 || queueIndex + 1 >= queue.size() || nextMediaPlayer != null) {
+            return;
+        }
+        final MediaPlayer next = new MediaPlayer();
+        nextMediaPlayer = next;
+        try {
+            next.setDataSource(context, queue.get(queueIndex + 1));
+        } catch (IOException e) {
+            releaseNextMediaPlayer();
+            return;
+        }
+        next.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
+            @Override
+            public void onPrepared(MediaPlayer mp) {
+                if (mp != nextMediaPlayer) {
+                    return;
+                }
+                mp.setVolume(volume, volume);
+                mediaPlayer.setNextMediaPlayer(mp);
+                nextMediaPlayerReady = true;
+            }
+        });
+        next.setOnErrorListener(new MediaPlayer.OnErrorListener() {
+            @Override
+            public boolean onError(MediaPlayer mp, int what, int extra) {
+                if (mp == nextMediaPlayer) {
+                    // Unchained, so the current item completes normally and the next one is
+                    // loaded again on the current player, which reports the error if it persists
+                    releaseNextMediaPlayer();
+                }
+                return true;
+            }
+        });
+        next.prepareAsync();
+    }
+
+    private void advanceToNextMediaPlayer() {
+        MediaPlayer previous = mediaPlayer;
+        mediaPlayer = nextMediaPlayer;
+        nextMediaPlayer = null;
+        nextMediaPlayerReady = false;
+        bufferedPercent = -1;
+        previous.release();
+        setListeners(mediaPlayer);
+        queueIndex++;
+        notifyQueueIndexChanged();
+        prepareNextMediaPlayer();
+    }
+
+    private void releaseNextMediaPlayer() {
+        if (nextMediaPlayer != null) {
+            if (nextMediaPlayerReady) {
+                mediaPlayer.setNextMediaPlayer(null);
+            }
+            nextMediaPlayer.release();
+            nextMediaPlayer = null;
+            nextMediaPlayerReady = false;
+        }
+    }
+
+    private void notifyQueueIndexChanged() {
+        if (onQueueIndexChangedListener != null) {
+            onQueueIndexChangedListener.onQueueIndexChanged(this, queueIndex);
+        }
     }
 
     @Override
@@ -151,22 +523,18 @@ public class RNMediaPlayer implements IRNMediaPlayer {
         afd.close();
     }
 
+    @Override
+    public void setSoundBankClip(RNSoundBank.Clip clip) throws IOException {
+        mediaPlayer.setDataSource(clip.getFileDescriptor(), clip.getOffset(), clip.getLength());
+    }
+
     @Override
     public void getDeviceVolume(Promise promise) {
-        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
-        int maxVolume = audioManager.getStreamMaxVolume(AudioManager.STREAM_MUSIC);
-        int currentVolume = audioManager.getStreamVolume(AudioManager.STREAM_MUSIC);
-        float pct = (float) currentVolume / (float) maxVolume;
-        promise.resolve(pct);
+        promise.resolve(RNDeviceVolume.getVolume(context));
     }
 
     @Override
     public void isDeviceMuted(Promise promise) {
-        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            promise.resolve(audioManager.isStreamMute(AudioManager.STREAM_MUSIC));
-        } else {
-            promise.resolve(false);
-        }
+        promise.resolve(RNDeviceVolume.isMuted(context));
     }
 }
@@ -0,0 +1,393 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+
+import java.util.Arrays;
+
+/**
+ * Software mixer playing many clips through one streaming AudioTrack.
+ *
+ * Clips are mixed in float on a render thread, resampled to the output rate with linear
+ * interpolation. Channels are allocated up front, so once playing nothing is allocated and a
+ * sound costs a few multiply-adds per frame instead of a player and an audio sink of its own.
+ * When every channel is busy, a new sound takes the channel of the one that started first.
+ */
+public class RNMixer {
+    public static final int DEFAULT_MAX_CHANNELS = 32;
+    private static final int FRAMES_PER_BLOCK = 256;
+
+    public interface Listener {
+        /**
+         * Called when the channel played to its end or was taken by another sound. It is called
+         * with the mixer lock held, possibly on the render thread, so it must only post.
+         */
+        void onChannelEnd();
+    }
+
+    public static class Channel {
+        private Listener owner;
+        private RNSample sample;
+        private double position;
+        private double step;
+        private int loopStartFrame;
+        private int endFrame;
+        private int loopsRemaining;
+        private float gainLeft;
+        private float gainRight;
+        private float targetGainLeft;
+        private float targetGainRight;
+        private long startedAt;
+        private long playStartedAtNs;
+    }
+
+    private final Object lock = new Object();
+    private final RNPlaybackMetrics metrics;
+    private final int outputSampleRate;
+    private Channel[] channels;
+    private int activeCount;
+    private long playCount;
+    private Thread renderThread;
+
+    public RNMixer(RNPlaybackMetrics metrics, int maxChannels) {
+        this.metrics = metrics;
+        this.outputSampleRate = AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_MUSIC);
+        this.channels = createChannels(Math.max(1, maxChannels));
+    }
+
+    /**
+     * Resizes the channel array, keeping busy channels first. When more sounds play than fit,
+     * the oldest end, as when play() takes a channel.
+     */
+    public void setMaxChannels(int maxChannels) {
+        maxChannels = Math.max(1, maxChannels);
+        synchronized (lock) {
+            if (maxChannels == channels.length) {
+                return;
+            }
+            while (activeCount > maxChannels) {
+                Channel oldest = null;
+                for (Channel channel : channels) {
+                    if (channel.owner != null && (oldest == null || channel.startedAt < oldest.startedAt)) {
+                        oldest = channel;
+                    }
+                }
+                endChannel(oldest);
+            }
+            Channel[] resized = new Channel[maxChannels];
+            int count = 0;
+            for (Channel channel : channels) {
+                if (channel.owner != null) {
+                    resized[count++] = channel;
+                }
+            }
+            for (int i = 0; i < channels.length && count < maxChannels; i++) {
+                if (channels[i].owner == null) {
+                    resized[count++] = channels[i];
+                }
+            }
+            for (; count < maxChannels; count++) {
+                resized[count] = new Channel();
+            }
+            channels = resized;
+        }
+    }
+
+    public int getMaxChannels() {
+        synchronized (lock) {
+            return channels.length;
+        }
+    }
+
+    /**
+     * Starts mixing a clip from startFrame and returns its channel. loops and the loop region
+     * work as in {@link IRNMediaPlayer#setLooping(int, int, int)}, in frames of the clip.
+     * Clips must be mono or stereo, as {@link RNSampleDecoder} makes them.
+     */
+    public Channel play(Listener owner, RNSample sample, int startFrame, int loops,
+                        int loopStartFrame, int loopEndFrame, float gainLeft, float gainRight) {
+        if (sample.getChannelCount() > 2) {
+            throw new IllegalArgumentException("Cannot mix a clip with " + sample.getChannelCount() + " channels");
+        }
+        synchronized (lock) {
+            Channel channel = null;
+            for (Channel candidate : channels) {
+                if (candidate.owner == null) {
+                    channel = candidate;
+                    break;
+                }
+                if (channel == null || candidate.startedAt < channel.startedAt) {
+                    channel = candidate;
+                }
+            }
+            if (channel.owner != null) {
+                endChannel(channel);
+            }
+
+            channel.owner = owner;
+            channel.sample = sample;
+            channel.position = startFrame;
+            channel.step = (double) sample.getSampleRate() / outputSampleRate;
+            channel.loopsRemaining = loops;
+            channel.loopStartFrame = loops != 0 ? loopStartFrame : 0;
+            channel.endFrame = loops != 0 ? loopEndFrame : sample.getFrameCount();
+            channel.gainLeft = gainLeft;
+            channel.gainRight = gainRight;
+            channel.targetGainLeft = gainLeft;
+            channel.targetGainRight = gainRight;
+            channel.startedAt = playCount++;
+            channel.playStartedAtNs = System.nanoTime();
+            activeCount++;
+            startRenderThread();
+            lock.notifyAll();
+            return channel;
+        }
+    }
+
+    /**
+     * Stops a channel and returns the frame it was at, or -1 when the owner lost it.
+     */
+    public int stop(Channel channel, Listener owner) {
+        synchronized (lock) {
+            if (channel.owner != owner) {
+                return -1;
+            }
+            int frame = (int) channel.position;
+            channel.owner = null;
+            channel.sample = null;
+            activeCount--;
+            return frame;
+        }
+    }
+
+    /**
+     * Returns the frame a channel is at, or -1 when the owner lost it.
+     */
+    public int getFrame(Channel channel, Listener owner) {
+        synchronized (lock) {
+            return channel.owner == owner ? (int) channel.position : -1;
+        }
+    }
+
+    public boolean isOwner(Channel channel, Listener owner) {
+        synchronized (lock) {
+            return channel.owner == owner;
+        }
+    }
+
+    /**
+     * Moves a playing channel to a frame of its clip.
+     */
+    public void setFrame(Channel channel, Listener owner, int frame) {
+        synchronized (lock) {
+            if (channel.owner == owner) {
+                channel.position = frame;
+            }
+        }
+    }
+
+    /**
+     * Sets the gain of a playing channel, ramped over one block to avoid clicks.
+     */
+    public void setGain(Channel channel, Listener owner, float gainLeft, float gainRight) {
+        synchronized (lock) {
+            if (channel.owner == owner) {
+                channel.targetGainLeft = gainLeft;
+                channel.targetGainRight = gainRight;
+            }
+        }
+    }
+
+    public boolean hasActiveChannels() {
+        synchronized (lock) {
+            return activeCount > 0;
+        }
+    }
+
+    /**
+     * Ends every channel and stops the render thread, releasing the AudioTrack. The mixer
+     * starts again on the next play.
+     */
+    public void release() {
+        Thread thread;
+        synchronized (lock) {
+            for (Channel channel : channels) {
+                if (channel.owner != null) {
+                    endChannel(channel);
+                }
+            }
+            thread = renderThread;
+            renderThread = null;
+            lock.notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Channel[] createChannels(int count) {
+        Channel[] channels = new Channel[count];
+        for (int i = 0; i < count; i++) {
+            channels[i] = new Channel();
+        }
+        return channels;
+    }
+
+    private void startRenderThread() {
+        if (renderThread != null) {
+            return;
+        }
+        renderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+                render();
+            }
+        }, "RNSoundPlayerMixer");
+        renderThread.start();
+    }
+
+    private void render() {
+        Thread current = Thread.currentThread();
+        int bufferBytes = getBufferBytes();
+        AudioTrack audioTrack = createAudioTrack(bufferBytes);
+        float[] mixBuffer = new float[FRAMES_PER_BLOCK * 2];
+        short[] outputBuffer = new short[FRAMES_PER_BLOCK * 2];
+        // Silent blocks to write after the last sound, so that its tail plays before pausing
+        int drainBlocks = bufferBytes / 4 / FRAMES_PER_BLOCK + 1;
+        int silentBlocks = drainBlocks;
+        boolean trackPlaying = false;
+        try {
+            while (true) {
+                synchronized (lock) {
+                    while (renderThread == current && activeCount == 0 && silentBlocks >= drainBlocks) {
+                        if (trackPlaying) {
+                            audioTrack.pause();
+                            audioTrack.flush();
+                            trackPlaying = false;
+                        }
+                        lock.wait();
+                    }
+                    // Released, possibly with a new render thread already started
+                    if (renderThread != current) {
+                        return;
+                    }
+                    if (!trackPlaying) {
+                        audioTrack.play();
+                        trackPlaying = true;
+                    }
+                    Arrays.fill(mixBuffer, 0f);
+                    for (Channel channel : channels) {
+                        if (channel.owner != null) {
+                            mixChannel(channel, mixBuffer);
+                        }
+                    }
+                    silentBlocks = activeCount > 0 ? 0 : silentBlocks + 1;
+                }
+                for (int i = 0; i < mixBuffer.length; i++) {
+                    float value = mixBuffer[i];
+                    outputBuffer[i] = (short) (value > Short.MAX_VALUE ? Short.MAX_VALUE
+                            : value < Short.MIN_VALUE ? Short.MIN_VALUE : value);
+                }
+                audioTrack.write(outputBuffer, 0, outputBuffer.length);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            audioTrack.release();
+        }
+    }
+
+    private void mixChannel(Channel channel, float[] mixBuffer) {
+        if (channel.playStartedAtNs != 0) {
+            metrics.getFirstFrame().recordSince(channel.playStartedAtNs);
+            channel.playStartedAtNs = 0;
+        }
+        short[] pcm = channel.sample.getPcm();
+        boolean stereo = channel.sample.getChannelCount() > 1;
+        float gainStepLeft = (channel.targetGainLeft - channel.gainLeft) / FRAMES_PER_BLOCK;
+        float gainStepRight = (channel.targetGainRight - channel.gainRight) / FRAMES_PER_BLOCK;
+
+        for (int frame = 0; frame < FRAMES_PER_BLOCK; frame++) {
+            if (channel.position >= channel.endFrame) {
+                if (channel.loopsRemaining == 0) {
+                    endChannel(channel);
+                    return;
+                }
+                if (channel.loopsRemaining > 0) {
+                    channel.loopsRemaining--;
+                }
+                channel.position = channel.loopStartFrame + (channel.position - channel.endFrame);
+            }
+            int index = (int) channel.position;
+            int next = Math.min(index + 1, channel.endFrame - 1);
+            float fraction = (float) (channel.position - index);
+            float left;
+            float right;
+            if (stereo) {
+                left = pcm[2 * index] + (pcm[2 * next] - pcm[2 * index]) * fraction;
+                right = pcm[2 * index + 1] + (pcm[2 * next + 1] - pcm[2 * index + 1]) * fraction;
+            } else {
+                left = pcm[index] + (pcm[next] - pcm[index]) * fraction;
+                right = left;
+            }
+            channel.gainLeft += gainStepLeft;
+            channel.gainRight += gainStepRight;
+            mixBuffer[2 * frame] += left * channel.gainLeft;
+            mixBuffer[2 * frame + 1] += right * channel.gainRight;
+            channel.position += channel.step;
+        }
+        channel.gainLeft = channel.targetGainLeft;
+        channel.gainRight = channel.targetGainRight;
+    }
+
+    private void endChannel(Channel channel) {
+        Listener owner = channel.owner;
+        channel.owner = null;
+        channel.sample = null;
+        activeCount--;
+        owner.onChannelEnd();
+    }
+
+    private int getBufferBytes() {
+        int minBufferBytes = AudioTrack.getMinBufferSize(
+                outputSampleRate, AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+        // 16-bit stereo frames, at least two blocks so that one can be written while the other plays
+        return Math.max(minBufferBytes, 2 * FRAMES_PER_BLOCK * 4);
+    }
+
+    @SuppressWarnings("deprecation")
+    private AudioTrack createAudioTrack(int bufferBytes) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            return new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_MEDIA)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .setSampleRate(outputSampleRate)
+                            .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
+                            .build())
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .setBufferSizeInBytes(bufferBytes)
+                    .setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY)
+                    .build();
+        }
+        return new AudioTrack(
+                AudioManager.STREAM_MUSIC,
+                outputSampleRate,
+                AudioFormat.CHANNEL_OUT_STEREO,
+                AudioFormat.ENCODING_PCM_16BIT,
+                bufferBytes,
+                AudioTrack.MODE_STREAM);
+    }
+}
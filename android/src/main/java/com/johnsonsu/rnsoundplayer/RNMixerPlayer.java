@@ -0,0 +1,330 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Promise;
+
+import java.io.IOException;
+
+/**
+ * Player of short clips mixed by a shared {@link RNMixer}.
+ *
+ * Clips are decoded and cached like with {@link RNSamplePlayer}, but playing one only takes a
+ * mixer channel, so many of these players can sound at once without an AudioTrack each.
+ */
+public class RNMixerPlayer implements IRNMediaPlayer, RNMixer.Listener {
+    private final Context context;
+    private final RNMixer mixer;
+    private final RNSampleCache sampleCache;
+    private final RNPlaybackMetrics metrics;
+    private final Handler handler;
+    private final Runnable channelEndRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onChannelEnded();
+        }
+    };
+    private IRNOnErrorListener onErrorListener;
+    private IRNOnPreparedListener onPreparedListener;
+    private IRNOnCompletionListener onCompletionListener;
+    private IRNOnSeekCompleteListener onSeekCompleteListener;
+
+    private int resourceId;
+    private Uri uri;
+    private RNSoundBank.Clip clip;
+    private int generation;
+    private RNSample sample;
+    private RNMixer.Channel channel;
+    private int frame;
+    private float volume = 1.0f;
+    private float pan;
+    private boolean playWhenPrepared;
+    private long prepareStartedAtNs;
+    private int loops;
+    private int loopStartMs;
+    private int loopEndMs;
+
+    public RNMixerPlayer(Context context, RNMixer mixer, RNSampleCache sampleCache, RNPlaybackMetrics metrics) {
+        this.context = context;
+        this.mixer = mixer;
+        this.sampleCache = sampleCache;
+        this.metrics = metrics;
+        Looper looper = Looper.myLooper();
+        this.handler = new Handler(looper != null ? looper : Looper.getMainLooper());
+    }
+
+    @Override
+    public void play() {
+        if (sample == null) {
+            playWhenPrepared = true;
+            return;
+        }
+        if (channel != null) {
+            if (mixer.isOwner(channel, this)) {
+                return;
+            }
+            // Ended but not reported yet: play again from the start
+            channel = null;
+            frame = 0;
+        }
+        if (frame >= getEndFrame()) {
+            // The first pass plays the part before the loop region too
+            frame = 0;
+        }
+        // An empty clip cannot loop; the mixer ends it right away
+        int channelLoops = sample.getFrameCount() > 0 ? loops : 0;
+        channel = mixer.play(this, sample, frame, channelLoops, getLoopStartFrame(), getLoopEndFrame(),
+                getGainLeft(), getGainRight());
+    }
+
+    @Override
+    public void pause() {
+        playWhenPrepared = false;
+        if (channel != null) {
+            int stoppedAt = mixer.stop(channel, this);
+            if (stoppedAt >= 0) {
+                frame = stoppedAt;
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public void stop() {
+        pause();
+        frame = 0;
+    }
+
+    @Override
+    public void rewindPrepared() {
+        stop();
+    }
+
+    @Override
+    public void setUri(Uri uri) throws IOException {
+        this.uri = uri;
+        this.resourceId = 0;
+        this.clip = null;
+    }
+
+    @Override
+    public void setRawResourceId(int resourceId) throws IOException {
+        this.resourceId = resourceId;
+        this.uri = null;
+        this.clip = null;
+    }
+
+    @Override
+    public void setSoundBankClip(RNSoundBank.Clip clip) throws IOException {
+        this.clip = clip;
+        this.uri = clip.getUri();
+        this.resourceId = 0;
+    }
+
+    @Override
+    public void prepare() throws IOException {
+        prepareStartedAtNs = System.nanoTime();
+        final int generation = this.generation;
+        RNSamplePlayer.load(context, sampleCache, resourceId, uri, clip, handler, new RNSamplePlayer.OnSampleLoadedListener() {
+            @Override
+            public void onSampleLoaded(RNSample sample) {
+                if (sample.getChannelCount() > 2) {
+                    onSampleError(new IOException("The mixer only plays mono and stereo clips"));
+                } else if (generation == RNMixerPlayer.this.generation) {
+                    onSampleReady(sample);
+                }
+            }
+
+            @Override
+            public void onSampleError(IOException e) {
+                metrics.recordError("Sample Decode Error");
+                if (generation == RNMixerPlayer.this.generation && onErrorListener != null) {
+                    onErrorListener.onError(
+                            RNMixerPlayer.this,
+                            MediaPlayer.MEDIA_ERROR_UNKNOWN,
+                            MediaPlayer.MEDIA_ERROR_IO,
+                            "Sample Decode Error",
+                            e.getMessage());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void reset() {
+        pause();
+        generation++;
+        sample = null;
+        frame = 0;
+    }
+
+    @Override
+    public void release() {
+        reset();
+    }
+
+    @Override
+    public void seekTo(int msec) {
+        if (sample == null) {
+            return;
+        }
+        long startedAtNs = System.nanoTime();
+        frame = (int) Math.min((long) msec * sample.getSampleRate() / 1000, sample.getFrameCount());
+        if (channel != null) {
+            mixer.setFrame(channel, this, frame);
+        }
+        long latencyMs = (System.nanoTime() - startedAtNs) / 1000000;
+        metrics.getSeek().record(latencyMs);
+        if (onSeekCompleteListener != null) {
+            onSeekCompleteListener.onSeekComplete(this, latencyMs);
+        }
+    }
+
+    /**
+     * The clip is in memory, so every seek is exact and completes right away.
+     */
+    @Override
+    public void seekTo(int msec, int mode) {
+        seekTo(msec);
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        this.volume = volume;
+        applyGain();
+    }
+
+    /**
+     * Sets the stereo position from -1 (left) to 1 (right).
+     */
+    public void setPan(float pan) {
+        this.pan = Math.max(-1f, Math.min(1f, pan));
+        applyGain();
+    }
+
+    @Override
+    public long getCurrentPosition() {
+        if (sample == null) {
+            return 0;
+        }
+        int current = channel != null ? mixer.getFrame(channel, this) : frame;
+        return Math.max(0, current) * 1000L / sample.getSampleRate();
+    }
+
+    @Override
+    public long getDuration() {
+        return sample != null ? sample.getDurationMs() : 0;
+    }
+
+    @Override
+    public long getBufferedPosition() {
+        return getDuration();
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return channel != null;
+    }
+
+    @Override
+    public void setLooping(int loops, int loopStartMs, int loopEndMs) {
+        this.loops = loops;
+        this.loopStartMs = loopStartMs;
+        this.loopEndMs = loopEndMs;
+    }
+
+    @Override
+    public void onChannelEnd() {
+        handler.post(channelEndRunnable);
+    }
+
+    @Override
+    public void setOnCompletionListener(IRNOnCompletionListener onCompletionListener) {
+        this.onCompletionListener = onCompletionListener;
+    }
+
+    @Override
+    public void setOnErrorListener(IRNOnErrorListener onErrorListener) {
+        this.onErrorListener = onErrorListener;
+    }
+
+    @Override
+    public void setOnPreparedListener(IRNOnPreparedListener onPreparedListener) {
+        this.onPreparedListener = onPreparedListener;
+    }
+
+    @Override
+    public void setOnSeekCompleteListener(IRNOnSeekCompleteListener onSeekCompleteListener) {
+        this.onSeekCompleteListener = onSeekCompleteListener;
+    }
+
+    @Override
+    public void getDeviceVolume(Promise promise) {
+        promise.resolve(RNDeviceVolume.getVolume(context));
+    }
+
+    @Override
+    public void isDeviceMuted(Promise promise) {
+        promise.resolve(RNDeviceVolume.isMuted(context));
+    }
+
+    private void onSampleReady(RNSample sample) {
+        this.sample = sample;
+        this.frame = 0;
+        metrics.getPrepare().recordSince(prepareStartedAtNs);
+        if (onPreparedListener != null) {
+            onPreparedListener.onPrepared(this);
+        }
+        if (playWhenPrepared) {
+            playWhenPrepared = false;
+            play();
+        }
+    }
+
+    private void onChannelEnded() {
+        // Ignore ends of channels this player has since stopped or played again
+        if (channel == null || mixer.isOwner(channel, this)) {
+            return;
+        }
+        channel = null;
+        frame = getEndFrame();
+        if (onCompletionListener != null) {
+            onCompletionListener.onCompletion(this);
+        }
+    }
+
+    private int getEndFrame() {
+        return loops != 0 ? getLoopEndFrame() : sample.getFrameCount();
+    }
+
+    private int getLoopStartFrame() {
+        int frame = (int) ((long) loopStartMs * sample.getSampleRate() / 1000);
+        return Math.max(0, Math.min(frame, getLoopEndFrame() - 1));
+    }
+
+    private int getLoopEndFrame() {
+        if (loopEndMs <= 0) {
+            return sample.getFrameCount();
+        }
+        return (int) Math.min((long) loopEndMs * sample.getSampleRate() / 1000, sample.getFrameCount());
+    }
+
+    // Balance pan: a centered sound plays at full volume on both sides, like the other backends
+    private float getGainLeft() {
+        return volume * Math.min(1f, 1f - pan);
+    }
+
+    private float getGainRight() {
+        return volume * Math.min(1f, 1f + pan);
+    }
+
+    private void applyGain() {
+        if (channel != null) {
+            mixer.setGain(channel, this, getGainLeft(), getGainRight());
+        }
+    }
+}
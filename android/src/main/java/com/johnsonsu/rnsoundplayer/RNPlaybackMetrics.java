@@ -0,0 +1,78 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Latency histograms and counters of one player backend, shared by every player of that backend.
+ */
+public class RNPlaybackMetrics {
+    public static final String EXOPLAYER = "exoplayer";
+    public static final String MEDIAPLAYER = "mediaplayer";
+    public static final String SAMPLE = "sample";
+    public static final String MIXER = "mixer";
+
+    private final RNLatencyHistogram prepare = new RNLatencyHistogram();
+    private final RNLatencyHistogram firstFrame = new RNLatencyHistogram();
+    private final RNLatencyHistogram seek = new RNLatencyHistogram();
+    private final RNLatencyHistogram rebuffer = new RNLatencyHistogram();
+    private final HashMap<String, Integer> errors = new HashMap<>();
+
+    /**
+     * Time from prepare() to the player being ready.
+     */
+    public RNLatencyHistogram getPrepare() {
+        return prepare;
+    }
+
+    /**
+     * Time from play() to the audio actually playing.
+     */
+    public RNLatencyHistogram getFirstFrame() {
+        return firstFrame;
+    }
+
+    /**
+     * Time from seekTo() to the player being ready at the new position.
+     */
+    public RNLatencyHistogram getSeek() {
+        return seek;
+    }
+
+    /**
+     * Duration of each stall while playing; its count is the number of rebuffers.
+     */
+    public RNLatencyHistogram getRebuffer() {
+        return rebuffer;
+    }
+
+    public synchronized void recordError(String whatString) {
+        Integer count = errors.get(whatString);
+        errors.put(whatString, count != null ? count + 1 : 1);
+    }
+
+    public synchronized void reset() {
+        prepare.reset();
+        firstFrame.reset();
+        seek.reset();
+        rebuffer.reset();
+        errors.clear();
+    }
+
+    public synchronized WritableMap toWritableMap() {
+        WritableMap map = Arguments.createMap();
+        map.putMap("prepare", prepare.toWritableMap());
+        map.putMap("firstFrame", firstFrame.toWritableMap());
+        map.putMap("seek", seek.toWritableMap());
+        map.putMap("rebuffer", rebuffer.toWritableMap());
+        WritableMap errorMap = Arguments.createMap();
+        for (Map.Entry<String, Integer> entry : errors.entrySet()) {
+            errorMap.putInt(entry.getKey(), entry.getValue());
+        }
+        map.putMap("errors", errorMap);
+        return map;
+    }
+}
@@ -0,0 +1,54 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.os.SystemClock;
+
+/**
+ * Immutable state of the main player, published by the playback thread for synchronous reads.
+ *
+ * The position is extrapolated from the time it was published while the sound advances, so the
+ * snapshot only needs publishing when the state changes and from time to time to correct drift.
+ */
+public class RNPlaybackSnapshot {
+    public static final RNPlaybackSnapshot IDLE = new RNPlaybackSnapshot(RNPlayerState.IDLE, false, 0, 0, 0);
+
+    private final String state;
+    private final boolean advancing;
+    private final long positionMs;
+    private final long durationMs;
+    private final long bufferedMs;
+    private final long publishedAtMs;
+
+    /**
+     * @param state one of the {@link RNPlayerState} states
+     * @param advancing whether the position moves, i.e. playing and not buffering
+     */
+    public RNPlaybackSnapshot(String state, boolean advancing, long positionMs, long durationMs, long bufferedMs) {
+        this.state = state;
+        this.advancing = advancing;
+        this.positionMs = positionMs;
+        // ExoPlayer reports unknown durations as a negative value
+        this.durationMs = Math.max(0, durationMs);
+        this.bufferedMs = Math.max(0, bufferedMs);
+        this.publishedAtMs = SystemClock.uptimeMillis();
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public long getPositionMs() {
+        if (!advancing) {
+            return positionMs;
+        }
+        long extrapolatedMs = positionMs + SystemClock.uptimeMillis() - publishedAtMs;
+        return durationMs > 0 ? Math.min(extrapolatedMs, durationMs) : extrapolatedMs;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public long getBufferedMs() {
+        return bufferedMs;
+    }
+}
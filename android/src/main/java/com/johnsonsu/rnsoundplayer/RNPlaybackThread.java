@@ -0,0 +1,163 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Single thread owning every player.
+ *
+ * Players are created on this thread, so their callbacks also arrive on it and listener fields
+ * are never shared across threads. Commands run in the order they were posted; a coalesced
+ * command replaces a pending one with the same key, as long as no other command was posted
+ * in between, so a burst of seeks or volume changes only runs the last one.
+ */
+public class RNPlaybackThread {
+    public interface Command {
+        void run() throws IOException;
+    }
+
+    public interface OnCommandErrorListener {
+        void onCommandError(Exception e);
+    }
+
+    private static class CoalescedCommand {
+        private Command command;
+        private final int generation;
+
+        CoalescedCommand(Command command, int generation) {
+            this.command = command;
+            this.generation = generation;
+        }
+    }
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final HashMap<String, CoalescedCommand> pendingCommands = new HashMap<>();
+    private int generation;
+    private OnCommandErrorListener onCommandErrorListener;
+    private final RNLatencyHistogram queueDelay = new RNLatencyHistogram();
+    private long idleTimeoutMs;
+    private Runnable onIdle;
+    private Runnable afterCommand;
+
+    public RNPlaybackThread() {
+        thread = new HandlerThread("RNSoundPlayer", Process.THREAD_PRIORITY_AUDIO);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    public void setOnCommandErrorListener(OnCommandErrorListener onCommandErrorListener) {
+        this.onCommandErrorListener = onCommandErrorListener;
+    }
+
+    /**
+     * Runs afterCommand on this thread after every command, e.g. to publish the state it changed.
+     */
+    public void setAfterCommand(Runnable afterCommand) {
+        this.afterCommand = afterCommand;
+    }
+
+    /**
+     * Runs onIdle on this thread once no command ran for idleTimeoutMs. 0 disables it.
+     * Must be called on this thread.
+     */
+    public void setIdleTimeout(long idleTimeoutMs, Runnable onIdle) {
+        if (this.onIdle != null) {
+            handler.removeCallbacks(this.onIdle);
+        }
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.onIdle = onIdle;
+        rescheduleIdle();
+    }
+
+    /**
+     * Restarts the idle timeout, e.g. when the idle callback found work still going on.
+     * Must be called on this thread.
+     */
+    public void rescheduleIdle() {
+        if (onIdle == null) {
+            return;
+        }
+        handler.removeCallbacks(onIdle);
+        if (idleTimeoutMs > 0) {
+            handler.postDelayed(onIdle, idleTimeoutMs);
+        }
+    }
+
+    public Looper getLooper() {
+        return thread.getLooper();
+    }
+
+    public Handler getHandler() {
+        return handler;
+    }
+
+    /**
+     * Time commands spent waiting for the thread before running.
+     */
+    public RNLatencyHistogram getQueueDelay() {
+        return queueDelay;
+    }
+
+    public synchronized void post(final Command command) {
+        generation++;
+        final long postedAtNs = System.nanoTime();
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                queueDelay.recordSince(postedAtNs);
+                execute(command);
+            }
+        });
+    }
+
+    public synchronized void postCoalesced(final String key, Command command) {
+        CoalescedCommand pending = pendingCommands.get(key);
+        if (pending != null && pending.generation == generation) {
+            pending.command = command;
+            return;
+        }
+
+        final CoalescedCommand coalesced = new CoalescedCommand(command, generation);
+        final long postedAtNs = System.nanoTime();
+        pendingCommands.put(key, coalesced);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                queueDelay.recordSince(postedAtNs);
+                Command command;
+                synchronized (RNPlaybackThread.this) {
+                    command = coalesced.command;
+                    if (pendingCommands.get(key) == coalesced) {
+                        pendingCommands.remove(key);
+                    }
+                }
+                execute(command);
+            }
+        });
+    }
+
+    public void quit() {
+        handler.removeCallbacksAndMessages(null);
+        thread.quit();
+    }
+
+    private void execute(Command command) {
+        try {
+            command.run();
+        } catch (IOException | RuntimeException e) {
+            if (onCommandErrorListener != null) {
+                onCommandErrorListener.onCommandError(e);
+            }
+        }
+        if (afterCommand != null) {
+            afterCommand.run();
+        }
+        rescheduleIdle();
+    }
+}
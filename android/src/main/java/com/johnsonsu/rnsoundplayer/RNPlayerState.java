@@ -0,0 +1,113 @@
+package com.johnsonsu.rnsoundplayer;
+
+/**
+ * State machine of the main player, moved by the module as commands run and player callbacks
+ * arrive.
+ *
+ * Each transition is reported once. Moves that would not change the state, or that the current
+ * state does not allow, such as a second prepared callback or a pause while paused, are ignored.
+ * A play requested while preparing is remembered and applied once prepared.
+ */
+public class RNPlayerState {
+    public static final String IDLE = "idle";
+    public static final String PREPARING = "preparing";
+    public static final String READY = "ready";
+    public static final String PLAYING = "playing";
+    public static final String PAUSED = "paused";
+    public static final String ENDED = "ended";
+    public static final String ERROR = "error";
+
+    public interface Listener {
+        /**
+         * @param error the error message when moving to {@link #ERROR}, null otherwise
+         */
+        void onStateChanged(String state, String previousState, String error);
+    }
+
+    private final Listener listener;
+    private String state = IDLE;
+    private boolean playWhenReady;
+
+    public RNPlayerState(Listener listener) {
+        this.listener = listener;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * A sound or queue starts loading, replacing whatever was loaded.
+     */
+    public void prepare() {
+        playWhenReady = false;
+        moveTo(PREPARING, null);
+    }
+
+    public void prepared() {
+        if (PREPARING.equals(state)) {
+            moveTo(READY, null);
+            if (playWhenReady) {
+                playWhenReady = false;
+                moveTo(PLAYING, null);
+            }
+        }
+    }
+
+    public void play() {
+        if (PREPARING.equals(state)) {
+            playWhenReady = true;
+        } else if (READY.equals(state) || PAUSED.equals(state) || ENDED.equals(state)) {
+            moveTo(PLAYING, null);
+        }
+    }
+
+    public void pause() {
+        if (PREPARING.equals(state)) {
+            playWhenReady = false;
+        } else if (PLAYING.equals(state)) {
+            moveTo(PAUSED, null);
+        }
+    }
+
+    /**
+     * Stopping rewinds the sound, which stays loaded and ready to play again.
+     */
+    public void stop() {
+        if (PREPARING.equals(state)) {
+            playWhenReady = false;
+        } else if (PLAYING.equals(state) || PAUSED.equals(state) || ENDED.equals(state)) {
+            moveTo(READY, null);
+        }
+    }
+
+    public void complete() {
+        if (PLAYING.equals(state)) {
+            moveTo(ENDED, null);
+        }
+    }
+
+    public void fail(String error) {
+        if (!IDLE.equals(state)) {
+            playWhenReady = false;
+            moveTo(ERROR, error);
+        }
+    }
+
+    /**
+     * Nothing is loaded anymore.
+     */
+    public void reset() {
+        playWhenReady = false;
+        moveTo(IDLE, null);
+    }
+
+    private void moveTo(String newState, String error) {
+        if (newState.equals(state)) {
+            return;
+        }
+        String previousState = state;
+        state = newState;
+        listener.onStateChanged(newState, previousState, error);
+    }
+}
@@ -0,0 +1,151 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheWriter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Warms the stream cache with the beginning of a list of urls, without touching any player.
+ *
+ * Urls are started in list order with a bounded number of parallel downloads. Progress of the
+ * whole batch is reported through a single, throttled listener.
+ */
+public class RNPrefetcher {
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    public interface OnProgressListener {
+        void onProgress(int batchId, int completed, int failed, int total, long bytesCached, boolean done);
+    }
+
+    private final RNStreamCache streamCache;
+    private OnProgressListener onProgressListener;
+    private int nextBatchId = 1;
+    private Batch currentBatch;
+
+    public RNPrefetcher(RNStreamCache streamCache) {
+        this.streamCache = streamCache;
+    }
+
+    public void setOnProgressListener(OnProgressListener onProgressListener) {
+        this.onProgressListener = onProgressListener;
+    }
+
+    /**
+     * Starts prefetching the urls, cancelling the previous batch. Returns the batch id, or 0 when
+     * the stream cache is disabled.
+     */
+    public synchronized int prefetch(List<String> urls, long maxBytesPerUrl, int parallelism) {
+        if (!streamCache.isEnabled()) {
+            return 0;
+        }
+        cancel();
+        if (urls.isEmpty()) {
+            if (onProgressListener != null) {
+                onProgressListener.onProgress(nextBatchId, 0, 0, 0, 0, true);
+            }
+            return nextBatchId++;
+        }
+        currentBatch = new Batch(nextBatchId++, urls.size(), Math.max(1, parallelism));
+        for (String url : urls) {
+            currentBatch.submit(Uri.parse(url), maxBytesPerUrl);
+        }
+        currentBatch.executor.shutdown();
+        return currentBatch.id;
+    }
+
+    public synchronized void cancel() {
+        if (currentBatch != null) {
+            currentBatch.cancel();
+            currentBatch = null;
+        }
+    }
+
+    private class Batch {
+        private final int id;
+        private final int total;
+        private final ExecutorService executor;
+        private int completed;
+        private int failed;
+        private long bytesCached;
+        private long lastProgressAt;
+        private volatile boolean cancelled;
+
+        Batch(int id, int total, int parallelism) {
+            this.id = id;
+            this.total = total;
+            this.executor = Executors.newFixedThreadPool(parallelism);
+        }
+
+        void submit(final Uri uri, final long maxBytes) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (cancelled) {
+                        return;
+                    }
+                    CacheDataSource dataSource = streamCache.createDataSourceForDownloading();
+                    if (dataSource == null) {
+                        onFinished(false);
+                        return;
+                    }
+                    DataSpec dataSpec = new DataSpec.Builder()
+                            .setUri(uri)
+                            .setLength(maxBytes > 0 ? maxBytes : C.LENGTH_UNSET)
+                            .build();
+                    CacheWriter cacheWriter = new CacheWriter(dataSource, dataSpec, true, null,
+                            new CacheWriter.ProgressListener() {
+                                @Override
+                                public void onProgress(long requestLength, long bytesCached, long newBytesCached) {
+                                    onBytesCached(newBytesCached);
+                                }
+                            });
+                    try {
+                        cacheWriter.cache();
+                        onFinished(true);
+                    } catch (IOException e) {
+                        onFinished(false);
+                    }
+                }
+            });
+        }
+
+        void cancel() {
+            cancelled = true;
+            executor.shutdownNow();
+        }
+
+        private synchronized void onBytesCached(long newBytesCached) {
+            bytesCached += newBytesCached;
+            reportProgress(false);
+        }
+
+        private synchronized void onFinished(boolean success) {
+            if (success) {
+                completed++;
+            } else {
+                failed++;
+            }
+            reportProgress(completed + failed == total);
+        }
+
+        private void reportProgress(boolean done) {
+            long now = SystemClock.elapsedRealtime();
+            if (cancelled || (!done && now - lastProgressAt < PROGRESS_INTERVAL_MS)) {
+                return;
+            }
+            lastProgressAt = now;
+            if (onProgressListener != null) {
+                onProgressListener.onProgress(id, completed, failed, total, bytesCached, done);
+            }
+        }
+    }
+}
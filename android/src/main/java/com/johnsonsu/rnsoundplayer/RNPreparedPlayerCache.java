@@ -0,0 +1,208 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used cache of players left prepared on a sound file, so that playing a recent
+ * sound again only rewinds it.
+ *
+ * Each player holds a codec, an AudioTrack and, for ExoPlayer, a thread, so the cache is bounded
+ * by player count, disabled by default, and players only stay in it for keepMs.
+ * Players leaving the cache are handed back to the caller, which reuses or releases them.
+ */
+public class RNPreparedPlayerCache {
+    public static final int DEFAULT_MAX_PLAYERS = 0;
+    public static final long DEFAULT_KEEP_MS = 10000;
+
+    public static class Entry {
+        private final String key;
+        private final IRNMediaPlayer player;
+        private final RNSoundResolver.Source source;
+        private final IRNOnPreparedListener onPreparedListener;
+        private long parkedAtMs;
+        private boolean prepared;
+
+        public Entry(String key, IRNMediaPlayer player, RNSoundResolver.Source source,
+                     IRNOnPreparedListener onPreparedListener) {
+            this.key = key;
+            this.player = player;
+            this.source = source;
+            this.onPreparedListener = onPreparedListener;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public IRNMediaPlayer getPlayer() {
+            return player;
+        }
+
+        public RNSoundResolver.Source getSource() {
+            return source;
+        }
+
+        /**
+         * Reports the sound loaded again, as on its first prepare.
+         */
+        public IRNOnPreparedListener getOnPreparedListener() {
+            return onPreparedListener;
+        }
+
+        public boolean isPrepared() {
+            return prepared;
+        }
+
+        public void setPrepared(boolean prepared) {
+            this.prepared = prepared;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxPlayers;
+    private long keepMs;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public RNPreparedPlayerCache(int maxPlayers, long keepMs) {
+        this.maxPlayers = maxPlayers;
+        this.keepMs = keepMs;
+    }
+
+    public synchronized boolean isEnabled() {
+        return maxPlayers > 0;
+    }
+
+    /**
+     * Removes and returns the entry of key, or null.
+     */
+    public synchronized Entry take(String key) {
+        return entries.remove(key);
+    }
+
+    /**
+     * Adds an entry, replacing the one with the same key. Returns the players that did not fit,
+     * possibly including the player of the entry.
+     */
+    public synchronized List<IRNMediaPlayer> put(Entry entry) {
+        List<IRNMediaPlayer> evicted = new ArrayList<>();
+        entry.parkedAtMs = SystemClock.uptimeMillis();
+        Entry previous = entries.put(entry.key, entry);
+        if (previous != null) {
+            evicted.add(previous.player);
+        }
+        trimToSize(maxPlayers, evicted);
+        return evicted;
+    }
+
+    /**
+     * Removes the entry of player, e.g. after it failed. Returns whether it was cached.
+     */
+    public synchronized boolean remove(IRNMediaPlayer player) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.player == player) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized List<IRNMediaPlayer> setMaxSize(int maxPlayers, long keepMs) {
+        this.maxPlayers = maxPlayers;
+        this.keepMs = keepMs;
+        List<IRNMediaPlayer> evicted = new ArrayList<>();
+        trimToSize(maxPlayers, evicted);
+        return evicted;
+    }
+
+    /**
+     * Removes and returns the players kept for keepMs or longer.
+     */
+    public synchronized List<IRNMediaPlayer> removeExpired() {
+        List<IRNMediaPlayer> expired = new ArrayList<>();
+        long nowMs = SystemClock.uptimeMillis();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (nowMs - entry.parkedAtMs >= keepMs) {
+                iterator.remove();
+                expired.add(entry.player);
+                evictions++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Returns the uptime at which the next player expires, or -1 when none is kept.
+     */
+    public synchronized long getNextExpiryMs() {
+        long nextMs = -1;
+        for (Entry entry : entries.values()) {
+            long expiryMs = entry.parkedAtMs + keepMs;
+            if (nextMs < 0 || expiryMs < nextMs) {
+                nextMs = expiryMs;
+            }
+        }
+        return nextMs;
+    }
+
+    public synchronized List<IRNMediaPlayer> clear() {
+        List<IRNMediaPlayer> players = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            players.add(entry.player);
+        }
+        entries.clear();
+        return players;
+    }
+
+    /**
+     * Counts a load served by a prepared player, cached or still mounted.
+     */
+    public synchronized void recordHit() {
+        hits++;
+    }
+
+    public synchronized void recordMiss() {
+        misses++;
+    }
+
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public synchronized WritableMap toWritableMap() {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("hits", hits);
+        map.putDouble("misses", misses);
+        map.putDouble("evictions", evictions);
+        map.putDouble("hitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : 0);
+        map.putInt("players", entries.size());
+        return map;
+    }
+
+    private void trimToSize(int maxPlayers, List<IRNMediaPlayer> evicted) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxPlayers && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            iterator.remove();
+            evicted.add(entry.player);
+            evictions++;
+        }
+    }
+}
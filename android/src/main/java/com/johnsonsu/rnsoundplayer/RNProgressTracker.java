@@ -0,0 +1,75 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Samples the position of the current player on its own timer and reports it only when it
+ * changed, so a paused or stopped player costs a timer tick and nothing else.
+ */
+public class RNProgressTracker {
+    public static final double MIN_RATE_HZ = 1;
+    public static final double MAX_RATE_HZ = 60;
+
+    public interface Callback {
+        IRNMediaPlayer getPlayer();
+
+        void onProgress(long positionMs, long durationMs);
+    }
+
+    private final Callback callback;
+    private Handler handler;
+    private long intervalMs;
+    private boolean running;
+    private long lastPositionMs = -1;
+    private long lastDurationMs = -1;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            if (!running) {
+                return;
+            }
+            IRNMediaPlayer player = callback.getPlayer();
+            if (player != null && player.isPlaying()) {
+                long positionMs = player.getCurrentPosition();
+                long durationMs = player.getDuration();
+                if (positionMs != lastPositionMs || durationMs != lastDurationMs) {
+                    lastPositionMs = positionMs;
+                    lastDurationMs = durationMs;
+                    callback.onProgress(positionMs, durationMs);
+                }
+            }
+            handler.postDelayed(this, intervalMs);
+        }
+    };
+
+    public RNProgressTracker(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Starts sampling on the calling thread's looper, or changes the rate if already started.
+     */
+    public void start(double rateHz) {
+        rateHz = Math.max(MIN_RATE_HZ, Math.min(MAX_RATE_HZ, rateHz));
+        intervalMs = Math.round(1000 / rateHz);
+        if (handler == null) {
+            Looper looper = Looper.myLooper();
+            handler = new Handler(looper != null ? looper : Looper.getMainLooper());
+        }
+        if (!running) {
+            running = true;
+            lastPositionMs = -1;
+            lastDurationMs = -1;
+            handler.post(tick);
+        }
+    }
+
+    public void stop() {
+        running = false;
+        if (handler != null) {
+            handler.removeCallbacks(tick);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DefaultLoadErrorHandlingPolicy;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+
+import java.io.IOException;
+
+/**
+ * Retries failed loads a bounded number of times, waiting twice as long after each failure.
+ *
+ * Errors that cannot go away by retrying, such as malformed media or a client error other
+ * than a timeout or rate limit, fail right away like with the default policy.
+ */
+public class RNRetryPolicy extends DefaultLoadErrorHandlingPolicy {
+    private final int maxRetries;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    public RNRetryPolicy(int maxRetries, long baseDelayMs, long maxDelayMs) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseDelayMs = Math.max(0, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Delay before the given retry, counting from 1: the base delay doubled on each retry,
+     * capped at the maximum delay.
+     */
+    public long getBackoffMs(int retry) {
+        if (retry <= 0) {
+            return 0;
+        }
+        // Shifting past 62 bits would overflow; the cap is reached long before anyway
+        int shift = Math.min(retry - 1, 62);
+        long delayMs = baseDelayMs > (Long.MAX_VALUE >> shift) ? Long.MAX_VALUE : baseDelayMs << shift;
+        return Math.min(delayMs, maxDelayMs);
+    }
+
+    /**
+     * Whether an error is worth retrying at all, whatever the number of retries left.
+     */
+    public static boolean isRetryable(IOException exception) {
+        if (exception instanceof HttpDataSource.InvalidResponseCodeException) {
+            int responseCode = ((HttpDataSource.InvalidResponseCodeException) exception).responseCode;
+            // Request timeout and too many requests are the client errors that may pass
+            return responseCode >= 500 || responseCode == 408 || responseCode == 429;
+        }
+        return true;
+    }
+
+    @Override
+    public long getRetryDelayMsFor(LoadErrorInfo loadErrorInfo) {
+        if (super.getRetryDelayMsFor(loadErrorInfo) == C.TIME_UNSET
+                || !isRetryable(loadErrorInfo.exception)
+                || loadErrorInfo.errorCount > maxRetries) {
+            return C.TIME_UNSET;
+        }
+        return getBackoffMs(loadErrorInfo.errorCount);
+    }
+
+    @Override
+    public int getMinimumLoadableRetryCount(int dataType) {
+        return maxRetries;
+    }
+}
@@ -0,0 +1,52 @@
+package com.johnsonsu.rnsoundplayer;
+
+/**
+ * Decoded 16-bit PCM clip, ready to be written to an AudioTrack.
+ */
+public class RNSample {
+    private final short[] pcm;
+    private final int length;
+    private final int sampleRate;
+    private final int channelCount;
+
+    /**
+     * Uses the first length samples of pcm, which may be followed by unused room.
+     */
+    public RNSample(short[] pcm, int length, int sampleRate, int channelCount) {
+        this.pcm = pcm;
+        this.length = length;
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+    }
+
+    public short[] getPcm() {
+        return pcm;
+    }
+
+    /**
+     * Number of samples of getPcm() that hold the clip.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public int getFrameCount() {
+        return length / channelCount;
+    }
+
+    public long getDurationMs() {
+        return getFrameCount() * 1000L / sampleRate;
+    }
+
+    public int getSizeBytes() {
+        return length * 2;
+    }
+}
@@ -0,0 +1,65 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of decoded samples, bounded by the total PCM size in bytes.
+ */
+public class RNSampleCache {
+    public static final int DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    private final LinkedHashMap<String, RNSample> samples = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxBytes;
+    private int sizeBytes;
+
+    public RNSampleCache(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized RNSample get(String key) {
+        return samples.get(key);
+    }
+
+    public synchronized void put(String key, RNSample sample) {
+        if (sample.getSizeBytes() > maxBytes) {
+            return;
+        }
+        RNSample previous = samples.put(key, sample);
+        if (previous != null) {
+            sizeBytes -= previous.getSizeBytes();
+        }
+        sizeBytes += sample.getSizeBytes();
+        trimToSize(maxBytes);
+    }
+
+    public synchronized void setMaxBytes(int maxBytes) {
+        this.maxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    public synchronized int getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Drops the least recently used samples until at most maxBytes are kept, without changing the budget.
+     */
+    public synchronized void trimTo(int maxBytes) {
+        trimToSize(maxBytes);
+    }
+
+    public synchronized void clear() {
+        samples.clear();
+        sizeBytes = 0;
+    }
+
+    private void trimToSize(int maxBytes) {
+        Iterator<Map.Entry<String, RNSample>> iterator = samples.entrySet().iterator();
+        while (sizeBytes > maxBytes && iterator.hasNext()) {
+            sizeBytes -= iterator.next().getValue().getSizeBytes();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.os.Build;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Decodes clips to 16-bit PCM with MediaExtractor and MediaCodec, whole or chunk by chunk.
+ *
+ * Whole clips are mono or stereo: clips with more channels are downmixed to stereo while decoded.
+ */
+public class RNSampleDecoder {
+    private static final long TIMEOUT_US = 10000;
+    // Decoders may output a little more than the announced duration, e.g. encoder padding
+    private static final int DURATION_MARGIN_FRAMES = 4096;
+    // Only returned before API 21
+    @SuppressWarnings("deprecation")
+    private static final int OUTPUT_BUFFERS_CHANGED = MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED;
+
+    /**
+     * Receives the decoded audio of {@link #decode(MediaExtractor, PcmListener)}.
+     */
+    public interface PcmListener {
+        /**
+         * Called before the first chunk and whenever the decoder changes its output format.
+         * durationUs is the duration announced by the container, or -1 when unknown.
+         */
+        void onFormat(int sampleRate, int channelCount, long durationUs) throws IOException;
+
+        /**
+         * Called with each decoded chunk of interleaved samples, only valid during the call.
+         */
+        void onPcm(ShortBuffer pcm) throws IOException;
+    }
+
+    public static RNSample decodeRawResource(Context context, int resourceId, int maxBytes) throws IOException {
+        return decode(openRawResource(context, resourceId), maxBytes);
+    }
+
+    public static RNSample decodeUri(Context context, Uri uri, int maxBytes) throws IOException {
+        return decode(openUri(context, uri), maxBytes);
+    }
+
+    public static RNSample decodeClip(RNSoundBank.Clip clip, int maxBytes) throws IOException {
+        return decode(openClip(clip), maxBytes);
+    }
+
+    /**
+     * Creates and starts a decoder for the clip's audio track, then releases it. The first
+     * decoder of a type loads the codec libraries, so this moves that cost out of the first play.
+     * Types already in warmMimeTypes are skipped; the clip's type is added to it.
+     */
+    public static void warmUpDecoder(Context context, RNSoundResolver.Source source, Set<String> warmMimeTypes) throws IOException {
+        MediaExtractor extractor = open(context, source);
+        MediaCodec codec = null;
+        try {
+            MediaFormat format = selectAudioTrack(extractor);
+            String mime = format.getString(MediaFormat.KEY_MIME);
+            if (!warmMimeTypes.add(mime)) {
+                return;
+            }
+            codec = MediaCodec.createDecoderByType(mime);
+            codec.configure(format, null, null, 0);
+            codec.start();
+        } catch (IllegalStateException e) {
+            throw new IOException(e);
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    /**
+     * Opens a sound resolved by {@link RNSoundResolver} for {@link #decode(MediaExtractor, PcmListener)}.
+     */
+    public static MediaExtractor open(Context context, RNSoundResolver.Source source) throws IOException {
+        return source.getClip() != null ? openClip(source.getClip())
+                : source.getResourceId() != 0 ? openRawResource(context, source.getResourceId())
+                : openUri(context, source.getUri());
+    }
+
+    /**
+     * Opens a url through an ExoPlayer data source, so that what the url cache already holds is
+     * read from disk instead of being downloaded again.
+     */
+    public static MediaExtractor openDataSource(Context context, Uri uri, DataSource.Factory dataSourceFactory)
+            throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                extractor.setDataSource(new RNMediaDataSource(dataSourceFactory, uri));
+            } else {
+                // MediaDataSource needs API 23, so copy the sound to a temporary file first
+                File file = File.createTempFile("RNSoundPlayer", null, context.getCacheDir());
+                try {
+                    copy(dataSourceFactory.createDataSource(), uri, file);
+                    FileInputStream stream = new FileInputStream(file);
+                    try {
+                        extractor.setDataSource(stream.getFD());
+                    } finally {
+                        stream.close();
+                    }
+                } finally {
+                    file.delete();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            extractor.release();
+            throw e;
+        }
+        return extractor;
+    }
+
+    private static void copy(DataSource dataSource, Uri uri, File file) throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            dataSource.open(new DataSpec(uri));
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+                output.write(buffer, 0, read);
+            }
+        } finally {
+            dataSource.close();
+            output.close();
+        }
+    }
+
+    private static MediaExtractor openRawResource(Context context, int resourceId) throws IOException {
+        AssetFileDescriptor afd = context.getResources().openRawResourceFd(resourceId);
+        if (afd == null) {
+            throw new IOException("Cannot open raw resource " + resourceId);
+        }
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+        } finally {
+            afd.close();
+        }
+        return extractor;
+    }
+
+    private static MediaExtractor openClip(RNSoundBank.Clip clip) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        extractor.setDataSource(clip.getFileDescriptor(), clip.getOffset(), clip.getLength());
+        return extractor;
+    }
+
+    /**
+     * Opens a file or content uri.
+     */
+    public static MediaExtractor openUri(Context context, Uri uri) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(context, uri, null);
+        } catch (IOException | RuntimeException e) {
+            extractor.release();
+            throw e;
+        }
+        return extractor;
+    }
+
+    private static MediaFormat selectAudioTrack(MediaExtractor extractor) throws IOException {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat trackFormat = extractor.getTrackFormat(i);
+            String trackMime = trackFormat.getString(MediaFormat.KEY_MIME);
+            if (trackMime != null && trackMime.startsWith("audio/")) {
+                extractor.selectTrack(i);
+                return trackFormat;
+            }
+        }
+        throw new IOException("No audio track found");
+    }
+
+    /**
+     * Decodes straight into a sample array sized from the announced duration, grown if the
+     * duration was missing or short, so that a clip is not copied from buffer to buffer.
+     */
+    private static RNSample decode(MediaExtractor extractor, final int maxBytes) throws IOException {
+        final int maxSamples = maxBytes / 2;
+        final short[][] pcm = new short[1][];
+        final int[] format = new int[2];
+        final int[] length = new int[1];
+        decode(extractor, new PcmListener() {
+            private int channelCount;
+
+            @Override
+            public void onFormat(int sampleRate, int channelCount, long durationUs) throws IOException {
+                this.channelCount = channelCount;
+                format[0] = sampleRate;
+                format[1] = Math.min(channelCount, 2);
+                if (pcm[0] == null) {
+                    long frames = durationUs > 0 ? durationUs * sampleRate / 1000000 : 0;
+                    if (frames * format[1] > maxSamples) {
+                        throw new IOException("Clip is too long for the sample engine");
+                    }
+                    pcm[0] = new short[(int) Math.min(maxSamples, (frames + DURATION_MARGIN_FRAMES) * format[1])];
+                }
+            }
+
+            @Override
+            public void onPcm(ShortBuffer samples) throws IOException {
+                int count = channelCount > 2
+                        ? samples.remaining() / channelCount * 2
+                        : samples.remaining();
+                int end = length[0] + count;
+                if (end > maxSamples) {
+                    throw new IOException("Clip is too long for the sample engine");
+                }
+                if (end > pcm[0].length) {
+                    int capacity = Math.max(end, pcm[0].length + pcm[0].length / 2);
+                    pcm[0] = Arrays.copyOf(pcm[0], Math.min(maxSamples, capacity));
+                }
+                if (channelCount > 2) {
+                    downmixToStereo(samples, channelCount, ShortBuffer.wrap(pcm[0], length[0], count));
+                } else {
+                    samples.get(pcm[0], length[0], count);
+                }
+                length[0] = end;
+            }
+        });
+        short[] samples = pcm[0] != null ? pcm[0] : new short[0];
+        // Only a badly wrong estimate is worth a copy
+        if (samples.length - length[0] > samples.length / 16) {
+            samples = Arrays.copyOf(samples, length[0]);
+        }
+        return new RNSample(samples, length[0], format[0], format[1]);
+    }
+
+    /**
+     * Keeps the front left and right channels, which come first in every Android channel layout,
+     * and adds the other channels to both sides at half level, scaled so the result cannot clip.
+     */
+    static void downmixToStereo(ShortBuffer input, int channelCount, ShortBuffer output) {
+        float scale = 1f / (1f + 0.5f * (channelCount - 2));
+        while (input.remaining() >= channelCount) {
+            float left = input.get();
+            float right = input.get();
+            float shared = 0;
+            for (int c = 2; c < channelCount; c++) {
+                shared += input.get();
+            }
+            output.put((short) ((left + 0.5f * shared) * scale));
+            output.put((short) ((right + 0.5f * shared) * scale));
+        }
+    }
+
+    /**
+     * Decodes the audio track chunk by chunk, so that only one decoder buffer is held at a time,
+     * then releases the extractor.
+     */
+    public static void decode(MediaExtractor extractor, PcmListener listener) throws IOException {
+        MediaCodec codec = null;
+        try {
+            MediaFormat format = selectAudioTrack(extractor);
+            String mime = format.getString(MediaFormat.KEY_MIME);
+            long durationUs = format.containsKey(MediaFormat.KEY_DURATION)
+                    ? format.getLong(MediaFormat.KEY_DURATION)
+                    : -1;
+            listener.onFormat(format.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                    format.getInteger(MediaFormat.KEY_CHANNEL_COUNT), durationUs);
+
+            codec = MediaCodec.createDecoderByType(mime);
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            // Buffer arrays are only needed before API 21, which can get each buffer by index
+            ByteBuffer[] inputBuffers = getLegacyInputBuffers(codec);
+            ByteBuffer[] outputBuffers = getLegacyOutputBuffers(codec);
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            boolean outputDone = false;
+
+            while (!outputDone) {
+                if (!inputDone) {
+                    int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer inputBuffer = inputBuffers != null
+                                ? inputBuffers[inputIndex]
+                                : codec.getInputBuffer(inputIndex);
+                        inputBuffer.clear();
+                        int size = extractor.readSampleData(inputBuffer, 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outputIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (outputIndex >= 0) {
+                    if (info.size > 0) {
+                        ByteBuffer outputBuffer = outputBuffers != null
+                                ? outputBuffers[outputIndex]
+                                : codec.getOutputBuffer(outputIndex);
+                        outputBuffer.position(info.offset);
+                        outputBuffer.limit(info.offset + info.size);
+                        listener.onPcm(outputBuffer.slice().order(ByteOrder.nativeOrder()).asShortBuffer());
+                    }
+                    codec.releaseOutputBuffer(outputIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        outputDone = true;
+                    }
+                } else if (outputIndex == OUTPUT_BUFFERS_CHANGED) {
+                    outputBuffers = getLegacyOutputBuffers(codec);
+                } else if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outputFormat = codec.getOutputFormat();
+                    listener.onFormat(outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                            outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT), durationUs);
+                }
+            }
+        } catch (IllegalStateException e) {
+            throw new IOException(e);
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static ByteBuffer[] getLegacyInputBuffers(MediaCodec codec) {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP ? codec.getInputBuffers() : null;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static ByteBuffer[] getLegacyOutputBuffers(MediaCodec codec) {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP ? codec.getOutputBuffers() : null;
+    }
+}
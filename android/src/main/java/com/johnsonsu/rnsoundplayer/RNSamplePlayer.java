@@ -0,0 +1,501 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Promise;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Low-latency player for short clips.
+ *
+ * Clips are decoded to PCM once and kept in a shared {@link RNSampleCache}; playing a cached
+ * clip only writes it to a static AudioTrack, so there is no decoder start on the hot path.
+ */
+public class RNSamplePlayer implements IRNMediaPlayer {
+    public static final int MAX_SAMPLE_BYTES = 4 * 1024 * 1024;
+
+    private static final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor();
+
+    interface OnSampleLoadedListener {
+        void onSampleLoaded(RNSample sample);
+
+        void onSampleError(IOException e);
+    }
+
+    private final Context context;
+    private final RNSampleCache sampleCache;
+    private final RNPlaybackMetrics metrics;
+    private final Handler handler;
+    private IRNOnErrorListener onErrorListener;
+    private IRNOnPreparedListener onPreparedListener;
+    private IRNOnCompletionListener onCompletionListener;
+    private IRNOnSeekCompleteListener onSeekCompleteListener;
+
+    private int resourceId;
+    private Uri uri;
+    private RNSoundBank.Clip clip;
+    private int generation;
+    private RNSample sample;
+    private AudioTrack audioTrack;
+    private RNSample trackSample;
+    private float volume = 1.0f;
+    private boolean playWhenPrepared;
+    private boolean playing;
+    private boolean finished;
+    private long prepareStartedAtNs;
+    private int loops;
+    private int loopStartMs;
+    private int loopEndMs;
+    private int loopsRemaining;
+
+    public RNSamplePlayer(Context context, RNSampleCache sampleCache, RNPlaybackMetrics metrics) {
+        this.context = context;
+        this.sampleCache = sampleCache;
+        this.metrics = metrics;
+        // Like ExoPlayer, call back on the looper the player was created on
+        Looper looper = Looper.myLooper();
+        this.handler = new Handler(looper != null ? looper : Looper.getMainLooper());
+    }
+
+    @Override
+    public void play() {
+        if (sample == null) {
+            playWhenPrepared = true;
+            return;
+        }
+        long startedAtNs = System.nanoTime();
+        if (audioTrack == null || trackSample != sample) {
+            createAudioTrack();
+            startLoops();
+        } else if (finished || audioTrack.getPlaybackHeadPosition() >= sample.getFrameCount()) {
+            rewind();
+            startLoops();
+        }
+        audioTrack.play();
+        playing = true;
+        metrics.getFirstFrame().recordSince(startedAtNs);
+    }
+
+    @Override
+    public void pause() {
+        playWhenPrepared = false;
+        if (audioTrack != null && playing) {
+            audioTrack.pause();
+            playing = false;
+        }
+    }
+
+    @Override
+    public void stop() {
+        playWhenPrepared = false;
+        if (audioTrack != null) {
+            rewind();
+            playing = false;
+            finished = true;
+        }
+    }
+
+    @Override
+    public void rewindPrepared() {
+        stop();
+    }
+
+    @Override
+    public void setUri(Uri uri) throws IOException {
+        this.uri = uri;
+        this.resourceId = 0;
+        this.clip = null;
+    }
+
+    @Override
+    public void setRawResourceId(int resourceId) throws IOException {
+        this.resourceId = resourceId;
+        this.uri = null;
+        this.clip = null;
+    }
+
+    @Override
+    public void setSoundBankClip(RNSoundBank.Clip clip) throws IOException {
+        this.clip = clip;
+        this.uri = clip.getUri();
+        this.resourceId = 0;
+    }
+
+    @Override
+    public void prepare() throws IOException {
+        prepareStartedAtNs = System.nanoTime();
+        final int generation = this.generation;
+        load(context, sampleCache, resourceId, uri, clip, handler, new OnSampleLoadedListener() {
+            @Override
+            public void onSampleLoaded(RNSample sample) {
+                if (generation == RNSamplePlayer.this.generation) {
+                    onSampleReady(sample);
+                }
+            }
+
+            @Override
+            public void onSampleError(IOException e) {
+                metrics.recordError("Sample Decode Error");
+                if (generation == RNSamplePlayer.this.generation && onErrorListener != null) {
+                    onErrorListener.onError(
+                            RNSamplePlayer.this,
+                            MediaPlayer.MEDIA_ERROR_UNKNOWN,
+                            MediaPlayer.MEDIA_ERROR_IO,
+                            "Sample Decode Error",
+                            e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets a clip from the cache, or decodes it in the background. The listener is called on
+     * the handler, right away when the clip was cached.
+     */
+    static void load(final Context context, final RNSampleCache sampleCache, final int resourceId, final Uri uri,
+                     final RNSoundBank.Clip clip, final Handler handler, final OnSampleLoadedListener listener) {
+        final String key = getCacheKey(resourceId, uri);
+        RNSample cached = sampleCache.get(key);
+        if (cached != null) {
+            listener.onSampleLoaded(cached);
+            return;
+        }
+
+        decodeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final RNSample decoded = decode(context, resourceId, uri, clip);
+                    sampleCache.put(key, decoded);
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onSampleLoaded(decoded);
+                        }
+                    });
+                } catch (final IOException e) {
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onSampleError(e);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Decodes a clip into the cache in the background, so that playing it later skips decoding.
+     */
+    public static void preload(final Context context, final RNSampleCache sampleCache, final RNSoundResolver.Source source) {
+        final String key = getCacheKey(source.getResourceId(), source.getUri());
+        if (sampleCache.get(key) != null) {
+            return;
+        }
+        decodeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sampleCache.put(key, decode(context, source.getResourceId(), source.getUri(), source.getClip()));
+                } catch (IOException e) {
+                    // The error is reported again when the clip is played
+                }
+            }
+        });
+    }
+
+    private static RNSample decode(Context context, int resourceId, Uri uri, RNSoundBank.Clip clip) throws IOException {
+        if (clip != null) {
+            return RNSampleDecoder.decodeClip(clip, MAX_SAMPLE_BYTES);
+        } else if (resourceId != 0) {
+            return RNSampleDecoder.decodeRawResource(context, resourceId, MAX_SAMPLE_BYTES);
+        }
+        return RNSampleDecoder.decodeUri(context, uri, MAX_SAMPLE_BYTES);
+    }
+
+    /**
+     * Files are keyed by their size and modification time too, so a rewritten file is decoded
+     * again instead of playing the audio cached before.
+     */
+    private static String getCacheKey(int resourceId, Uri uri) {
+        if (resourceId != 0) {
+            return "raw:" + resourceId;
+        }
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            File file = new File(uri.getPath());
+            return uri + "#" + file.length() + "@" + file.lastModified();
+        }
+        return uri.toString();
+    }
+
+    @Override
+    public void setLooping(int loops, int loopStartMs, int loopEndMs) {
+        this.loops = loops;
+        this.loopStartMs = loopStartMs;
+        this.loopEndMs = loopEndMs;
+    }
+
+    @Override
+    public void release() {
+        reset();
+        releaseAudioTrack();
+    }
+
+    @Override
+    public void reset() {
+        generation++;
+        playWhenPrepared = false;
+        playing = false;
+        sample = null;
+        if (audioTrack != null) {
+            audioTrack.stop();
+        }
+    }
+
+    @Override
+    public void seekTo(int msec) {
+        if (audioTrack == null || sample == null) {
+            return;
+        }
+        long startedAtNs = System.nanoTime();
+        int frame = (int) Math.min((long) msec * sample.getSampleRate() / 1000, sample.getFrameCount());
+        boolean wasPlaying = playing;
+        if (wasPlaying) {
+            audioTrack.pause();
+        }
+        audioTrack.setPlaybackHeadPosition(frame);
+        if (wasPlaying) {
+            audioTrack.play();
+        }
+        long latencyMs = (System.nanoTime() - startedAtNs) / 1000000;
+        metrics.getSeek().record(latencyMs);
+        if (onSeekCompleteListener != null) {
+            onSeekCompleteListener.onSeekComplete(this, latencyMs);
+        }
+    }
+
+    /**
+     * The clip is in memory, so every seek is exact and completes right away.
+     */
+    @Override
+    public void seekTo(int msec, int mode) {
+        seekTo(msec);
+    }
+
+    @Override
+    public void setVolume(float volume) {
+        this.volume = volume;
+        if (audioTrack != null) {
+            applyVolume();
+        }
+    }
+
+    @Override
+    public long getCurrentPosition() {
+        if (audioTrack == null || sample == null) {
+            return 0;
+        }
+        return audioTrack.getPlaybackHeadPosition() * 1000L / sample.getSampleRate();
+    }
+
+    @Override
+    public long getDuration() {
+        return sample != null ? sample.getDurationMs() : 0;
+    }
+
+    @Override
+    public long getBufferedPosition() {
+        return getDuration();
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public void setOnCompletionListener(IRNOnCompletionListener onCompletionListener) {
+        this.onCompletionListener = onCompletionListener;
+    }
+
+    @Override
+    public void setOnErrorListener(IRNOnErrorListener onErrorListener) {
+        this.onErrorListener = onErrorListener;
+    }
+
+    @Override
+    public void setOnPreparedListener(IRNOnPreparedListener onPreparedListener) {
+        this.onPreparedListener = onPreparedListener;
+    }
+
+    @Override
+    public void setOnSeekCompleteListener(IRNOnSeekCompleteListener onSeekCompleteListener) {
+        this.onSeekCompleteListener = onSeekCompleteListener;
+    }
+
+    @Override
+    public void getDeviceVolume(Promise promise) {
+        promise.resolve(RNDeviceVolume.getVolume(context));
+    }
+
+    @Override
+    public void isDeviceMuted(Promise promise) {
+        promise.resolve(RNDeviceVolume.isMuted(context));
+    }
+
+    private void onSampleReady(RNSample sample) {
+        this.sample = sample;
+        metrics.getPrepare().recordSince(prepareStartedAtNs);
+        if (audioTrack != null && trackSample == sample) {
+            // Same clip as last time: rewind the static buffer instead of building a new track
+            rewind();
+            startLoops();
+        }
+        if (onPreparedListener != null) {
+            onPreparedListener.onPrepared(this);
+        }
+        if (playWhenPrepared) {
+            playWhenPrepared = false;
+            play();
+        }
+    }
+
+    private void createAudioTrack() {
+        releaseAudioTrack();
+        int channelConfig = sample.getChannelCount() == 1
+                ? AudioFormat.CHANNEL_OUT_MONO
+                : AudioFormat.CHANNEL_OUT_STEREO;
+        int sizeBytes = sample.getSizeBytes();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            audioTrack = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_MEDIA)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .setSampleRate(sample.getSampleRate())
+                            .setChannelMask(channelConfig)
+                            .build())
+                    .setTransferMode(AudioTrack.MODE_STATIC)
+                    .setBufferSizeInBytes(sizeBytes)
+                    .setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY)
+                    .build();
+        } else {
+            audioTrack = new AudioTrack(
+                    AudioManager.STREAM_MUSIC,
+                    sample.getSampleRate(),
+                    channelConfig,
+                    AudioFormat.ENCODING_PCM_16BIT,
+                    sizeBytes,
+                    AudioTrack.MODE_STATIC);
+        }
+        audioTrack.write(sample.getPcm(), 0, sample.getLength());
+        trackSample = sample;
+        applyVolume();
+
+        audioTrack.setPlaybackPositionUpdateListener(new AudioTrack.OnPlaybackPositionUpdateListener() {
+            @Override
+            public void onMarkerReached(AudioTrack track) {
+                if (loops < 0) {
+                    // Looping forever with the track's own loop points
+                    return;
+                }
+                if (loopsRemaining > 0) {
+                    loopsRemaining--;
+                    rewind();
+                    seekToLoopStart();
+                    track.play();
+                    return;
+                }
+                if (loops != 0 && getLoopEndFrame() < sample.getFrameCount()) {
+                    // Do not play past the loop region
+                    track.stop();
+                }
+                playing = false;
+                finished = true;
+                if (onCompletionListener != null) {
+                    onCompletionListener.onCompletion(RNSamplePlayer.this);
+                }
+            }
+
+            @Override
+            public void onPeriodicNotification(AudioTrack track) {
+
+            }
+        }, handler);
+    }
+
+    private void rewind() {
+        audioTrack.stop();
+        audioTrack.reloadStaticData();
+    }
+
+    /**
+     * Sets the loop points and end marker of a stopped track for a new play. The first pass
+     * starts from the beginning of the clip; repeats start from the loop start.
+     */
+    private void startLoops() {
+        finished = false;
+        loopsRemaining = loops;
+        int endFrame = loops != 0 ? getLoopEndFrame() : sample.getFrameCount();
+        if (loops < 0) {
+            audioTrack.setLoopPoints(getLoopStartFrame(), endFrame, -1);
+        } else {
+            audioTrack.setLoopPoints(0, sample.getFrameCount(), 0);
+        }
+        audioTrack.setNotificationMarkerPosition(endFrame);
+    }
+
+    private void seekToLoopStart() {
+        int startFrame = getLoopStartFrame();
+        if (startFrame > 0) {
+            audioTrack.setPlaybackHeadPosition(startFrame);
+        }
+        audioTrack.setNotificationMarkerPosition(getLoopEndFrame());
+    }
+
+    private int getLoopStartFrame() {
+        int frame = (int) ((long) loopStartMs * sample.getSampleRate() / 1000);
+        return Math.max(0, Math.min(frame, getLoopEndFrame() - 1));
+    }
+
+    private int getLoopEndFrame() {
+        if (loopEndMs <= 0) {
+            return sample.getFrameCount();
+        }
+        return (int) Math.min((long) loopEndMs * sample.getSampleRate() / 1000, sample.getFrameCount());
+    }
+
+    @SuppressWarnings("deprecation")
+    private void applyVolume() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            audioTrack.setVolume(volume);
+        } else {
+            audioTrack.setStereoVolume(volume, volume);
+        }
+    }
+
+    private void releaseAudioTrack() {
+        if (audioTrack != null) {
+            audioTrack.release();
+            audioTrack = null;
+            trackSample = null;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Plays cues at given times from the playback thread.
+ *
+ * Each cue is prepared PREPARE_AHEAD_MS before its time, then started by a message posted for its
+ * uptime, so cue timing depends neither on the JS thread nor on how long the source takes to load.
+ * Must only be used on the thread of the handler.
+ */
+public class RNScheduler {
+    public static final long PREPARE_AHEAD_MS = 500;
+
+    public interface Callback {
+        /**
+         * Loads the cue's source, returning false if it cannot be played.
+         */
+        boolean onPrepareCue(Cue cue);
+
+        void onStartCue(Cue cue);
+    }
+
+    public static class Cue {
+        private final int id;
+        private final String name;
+        private final String type;
+        private final long startAtMs;
+        private final float volume;
+        private final int priority;
+        private int voiceId;
+
+        Cue(int id, String name, String type, long startAtMs, float volume, int priority) {
+            this.id = id;
+            this.name = name;
+            this.type = type;
+            this.startAtMs = startAtMs;
+            this.volume = volume;
+            this.priority = priority;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Start time on the {@link SystemClock#uptimeMillis()} clock.
+         */
+        public long getStartAtMs() {
+            return startAtMs;
+        }
+
+        public float getVolume() {
+            return volume;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public int getVoiceId() {
+            return voiceId;
+        }
+
+        public void setVoiceId(int voiceId) {
+            this.voiceId = voiceId;
+        }
+    }
+
+    private final Handler handler;
+    private final Callback callback;
+    private final HashMap<Integer, Cue> pendingCues = new HashMap<>();
+    private int nextId = 1;
+
+    public RNScheduler(Handler handler, Callback callback) {
+        this.handler = handler;
+        this.callback = callback;
+    }
+
+    /**
+     * Schedules a cue at startAtMs on the {@link SystemClock#uptimeMillis()} clock and returns its id.
+     */
+    public int schedule(String name, String type, long startAtMs, float volume, int priority) {
+        final Cue cue = new Cue(nextId++, name, type, startAtMs, volume, priority);
+        pendingCues.put(cue.getId(), cue);
+        handler.postAtTime(new Runnable() {
+            @Override
+            public void run() {
+                if (!callback.onPrepareCue(cue)) {
+                    cancel(cue.getId());
+                }
+            }
+        }, cue, Math.max(SystemClock.uptimeMillis(), startAtMs - PREPARE_AHEAD_MS));
+        handler.postAtTime(new Runnable() {
+            @Override
+            public void run() {
+                pendingCues.remove(cue.getId());
+                callback.onStartCue(cue);
+            }
+        }, cue, startAtMs);
+        return cue.getId();
+    }
+
+    /**
+     * Cancels a cue that did not start yet. Returns the cancelled cue, or null.
+     */
+    public Cue cancel(int id) {
+        Cue cue = pendingCues.remove(id);
+        if (cue != null) {
+            handler.removeCallbacksAndMessages(cue);
+        }
+        return cue;
+    }
+
+    public boolean hasPendingCues() {
+        return !pendingCues.isEmpty();
+    }
+
+    /**
+     * Cancels every cue that did not start yet and returns them.
+     */
+    public List<Cue> cancelAll() {
+        List<Cue> cues = new ArrayList<>(pendingCues.values());
+        for (Cue cue : cues) {
+            handler.removeCallbacksAndMessages(cue);
+        }
+        pendingCues.clear();
+        return cues;
+    }
+}
@@ -0,0 +1,261 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.BaseDataSource;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Packed sound bank: an index followed by the encoded clips, built by scripts/pack-sound-bank.js.
+ *
+ * The bank is opened and memory-mapped once. Clips are played in place, by file descriptor
+ * offset and length for the platform decoders and from the mapped buffer for ExoPlayer, so
+ * playing a clip never opens a file. Format, big-endian:
+ *
+ * <pre>
+ * "RNSB", u32 version, u32 clip count,
+ * per clip: u16 key length, UTF-8 key ("name.type"), u64 offset from the bank start, u64 length,
+ * clip data
+ * </pre>
+ */
+public class RNSoundBank {
+    public static final String SCHEME = "rnsoundbank";
+    private static final int MAGIC = 0x524e5342;
+    private static final int VERSION = 1;
+    private static int nextBankId = 1;
+
+    public static class Clip {
+        private final RNSoundBank bank;
+        private final String key;
+        private final long offset;
+        private final long length;
+        private final Uri uri;
+
+        Clip(RNSoundBank bank, String key, long offset, long length) {
+            this.bank = bank;
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+            // Unique per loaded bank, so caches keyed by uri never mix up reloaded banks
+            this.uri = new Uri.Builder().scheme(SCHEME).authority(String.valueOf(bank.id)).appendPath(key).build();
+        }
+
+        public RNSoundBank getBank() {
+            return bank;
+        }
+
+        public FileDescriptor getFileDescriptor() {
+            return bank.fileDescriptor;
+        }
+
+        /**
+         * Offset of the clip in the file descriptor.
+         */
+        public long getOffset() {
+            return bank.startOffset + offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public Uri getUri() {
+            return uri;
+        }
+
+        /**
+         * The clip bytes, read from the mapped bank.
+         */
+        ByteBuffer getData() {
+            ByteBuffer data = bank.buffer.duplicate();
+            data.position((int) offset);
+            data.limit((int) (offset + length));
+            return data.slice();
+        }
+    }
+
+    private final int id;
+    private final FileInputStream stream;
+    private final FileDescriptor fileDescriptor;
+    private final long startOffset;
+    private final MappedByteBuffer buffer;
+    private final HashMap<String, Clip> clips = new HashMap<>();
+    private DataSource.Factory dataSourceFactory;
+
+    private RNSoundBank(FileInputStream stream, long startOffset, long length) throws IOException {
+        synchronized (RNSoundBank.class) {
+            this.id = nextBankId++;
+        }
+        this.stream = stream;
+        this.fileDescriptor = stream.getFD();
+        this.startOffset = startOffset;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Sound bank is larger than 2 GB");
+        }
+        this.buffer = stream.getChannel().map(FileChannel.MapMode.READ_ONLY, startOffset, length);
+        readIndex();
+    }
+
+    public static RNSoundBank open(File file) throws IOException {
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            return new RNSoundBank(stream, 0, file.length());
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a bank stored uncompressed in the APK, e.g. a raw resource.
+     */
+    public static RNSoundBank open(AssetFileDescriptor afd) throws IOException {
+        FileInputStream stream = afd.createInputStream();
+        try {
+            return new RNSoundBank(stream, afd.getStartOffset(), afd.getLength());
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the clip with the given "name.type" key, or null.
+     */
+    public Clip getClip(String key) {
+        return clips.get(key);
+    }
+
+    public List<String> getKeys() {
+        return new ArrayList<>(clips.keySet());
+    }
+
+    /**
+     * ExoPlayer data sources reading the clip uris of this bank from the mapped buffer.
+     */
+    public synchronized DataSource.Factory getDataSourceFactory() {
+        if (dataSourceFactory == null) {
+            dataSourceFactory = new DataSource.Factory() {
+                @Override
+                public DataSource createDataSource() {
+                    return new ClipDataSource();
+                }
+            };
+        }
+        return dataSourceFactory;
+    }
+
+    /**
+     * Closes the file. Clips already set on a player keep playing: the platform decoders
+     * duplicate the descriptor and the mapping stays valid.
+     */
+    public void close() {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+    }
+
+    private void readIndex() throws IOException {
+        ByteBuffer index = buffer.duplicate();
+        try {
+            if (index.getInt() != MAGIC) {
+                throw new IOException("Not a sound bank");
+            }
+            int version = index.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported sound bank version " + version);
+            }
+            int count = index.getInt();
+            Charset utf8 = Charset.forName("UTF-8");
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[index.getShort() & 0xffff];
+                index.get(key);
+                long offset = index.getLong();
+                long length = index.getLong();
+                if (offset < 0 || length < 0 || offset + length > buffer.capacity()) {
+                    throw new IOException("Sound bank clip out of range");
+                }
+                Clip clip = new Clip(this, new String(key, utf8), offset, length);
+                clips.put(clip.key, clip);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt sound bank", e);
+        }
+    }
+
+    private class ClipDataSource extends BaseDataSource {
+        private Uri uri;
+        private ByteBuffer clipBuffer;
+
+        ClipDataSource() {
+            super(false);
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            transferInitializing(dataSpec);
+            List<String> segments = dataSpec.uri.getPathSegments();
+            Clip clip = segments.isEmpty() ? null : clips.get(segments.get(0));
+            if (clip == null || !clip.uri.equals(dataSpec.uri)) {
+                throw new IOException("Unknown sound bank clip " + dataSpec.uri);
+            }
+            if (dataSpec.position > clip.length) {
+                throw new IOException("Position past the end of " + dataSpec.uri);
+            }
+            uri = dataSpec.uri;
+            ByteBuffer slice = buffer.duplicate();
+            slice.position((int) (clip.offset + dataSpec.position));
+            long available = clip.length - dataSpec.position;
+            long length = dataSpec.length != C.LENGTH_UNSET ? Math.min(dataSpec.length, available) : available;
+            slice.limit((int) (slice.position() + length));
+            clipBuffer = slice.slice();
+            transferStarted(dataSpec);
+            return length;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!clipBuffer.hasRemaining()) {
+                return C.RESULT_END_OF_INPUT;
+            }
+            int read = Math.min(length, clipBuffer.remaining());
+            clipBuffer.get(target, offset, read);
+            bytesTransferred(read);
+            return read;
+        }
+
+        @Override
+        public Uri getUri() {
+            return uri;
+        }
+
+        @Override
+        public void close() {
+            if (clipBuffer != null) {
+                clipBuffer = null;
+                uri = null;
+                transferEnded();
+            }
+        }
+    }
+}
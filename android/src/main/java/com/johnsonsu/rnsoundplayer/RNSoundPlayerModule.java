@@ -1,39 +1,271 @@
 package com.johnsonsu.rnsoundplayer;
 
 
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
 import android.net.Uri;
-
-import java.io.File;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.google.android.exoplayer2.DefaultLoadControl;
+
+public class RNSoundPlayerModule extends ReactContextBaseJavaModule implements LifecycleEventListener {
 
-public class RNSoundPlayerModule extends ReactContextBaseJavaModule {
+  private final static String TAG = "RNSoundPlayer";
 
   public final static String EVENT_FINISHED_PLAYING = "FinishedPlaying";
   public final static String EVENT_FINISHED_LOADING = "FinishedLoading";
   public final static String EVENT_FINISHED_LOADING_FILE = "FinishedLoadingFile";
   public final static String EVENT_FINISHED_LOADING_URL = "FinishedLoadingURL";
+  public final static String EVENT_PRELOAD_PROGRESS = "PreloadProgress";
+  public final static String EVENT_PLAYBACK_PROGRESS = "PlaybackProgress";
+  public final static String EVENT_QUEUE_INDEX_CHANGED = "QueueIndexChanged";
+  public final static String EVENT_SEEK_COMPLETE = "SeekComplete";
+  public final static String EVENT_PLAYER_STATE_CHANGED = "PlayerStateChanged";
+  public final static String EVENT_AUDIO_LEVELS = "AudioLevels";
+  private final static double MAX_METERING_RATE_HZ = 30;
+  private final static int DEFAULT_METERING_WINDOW_MS = 100;
+  // Corrects the extrapolated position of the published snapshot and catches player callbacks
+  private final static long SNAPSHOT_REFRESH_MS = 250;
 
   private final ReactApplicationContext reactContext;
+  private final RNVoicePool voicePool;
+  private final RNSampleCache sampleCache;
+  private final RNStreamCache streamCache;
+  private final RNPrefetcher prefetcher;
+  private final RNAnalyzer analyzer;
+  private final RNSoundResolver soundResolver;
+  private final RNProgressTracker progressTracker;
+  private final RNPlaybackThread playbackThread;
+  private final RNPlayerState playerState;
+  // Subscriptions of the JS wrapper per event, so that events nobody listens to are neither built nor sent
+  private final HashMap<String, Integer> listenerCounts = new HashMap<>();
+  private volatile RNPlaybackSnapshot snapshot = RNPlaybackSnapshot.IDLE;
+  private final Runnable snapshotRefresh = new Runnable() {
+    @Override
+    public void run() {
+      publishSnapshot();
+    }
+  };
+  // Metering state is written on the playback thread, levelMeter is read by getAudioLevelsSync()
+  private boolean meteringEnabled;
+  private long meteringIntervalMs;
+  private volatile int meteringWindowMs = DEFAULT_METERING_WINDOW_MS;
+  private volatile RNLevelMeter levelMeter;
+  private boolean levelsSilent = true;
+  // Reused by every reading: levelsPeak and levelsRms on the playback thread, syncPeak and syncRms
+  // by getAudioLevelsSync()
+  private final float[] levelsPeak = new float[RNLevelMeter.MAX_CHANNELS];
+  private final float[] levelsRms = new float[RNLevelMeter.MAX_CHANNELS];
+  private final float[] syncPeak = new float[RNLevelMeter.MAX_CHANNELS];
+  private final float[] syncRms = new float[RNLevelMeter.MAX_CHANNELS];
+  private final Runnable levelsTick = new Runnable() {
+    @Override
+    public void run() {
+      publishLevels();
+    }
+  };
+  private final RNScheduler scheduler;
+  private final Object delayedPlayToken = new Object();
+  private boolean delayedPlayPending;
+  private final ComponentCallbacks2 memoryCallbacks;
   private IRNMediaPlayer mediaPlayer;
+  // Sound file of the main player, while it can be kept prepared for the next play of that sound
+  private RNPreparedPlayerCache.Entry mountedEntry;
+  private final RNPreparedPlayerCache preparedPlayers =
+          new RNPreparedPlayerCache(RNPreparedPlayerCache.DEFAULT_MAX_PLAYERS, RNPreparedPlayerCache.DEFAULT_KEEP_MS);
+  private final Runnable preparedPlayersExpiry = new Runnable() {
+    @Override
+    public void run() {
+      for (IRNMediaPlayer player : preparedPlayers.removeExpired()) {
+        player.release();
+      }
+      schedulePreparedPlayersExpiry();
+    }
+  };
+  // Loads the last sound again after its idle player was released
+  private RNPlaybackThread.Command lastLoad;
+  private boolean playerReleased;
+  private long releasedPositionMs;
+  private long releasedDurationMs;
+  private final List<String> queueUrls = new ArrayList<>();
   private float volume;
+  private int loops;
+  private int loopStartMs;
+  private int loopEndMs;
 
-  private boolean useExoPlayer = true;
+  private final RNBackendSelector backendSelector = new RNBackendSelector();
+  private boolean useSampleEngine = false;
+  private RNBufferingProfile bufferingProfile = RNBufferingProfile.DEFAULT_PROFILE;
+  private RNBufferingProfile customBufferingProfile;
+  private final RNPlaybackMetrics exoPlayerMetrics = new RNPlaybackMetrics();
+  private final RNPlaybackMetrics mediaPlayerMetrics = new RNPlaybackMetrics();
+  private final RNPlaybackMetrics sampleMetrics = new RNPlaybackMetrics();
+  private final RNPlaybackMetrics mixerMetrics = new RNPlaybackMetrics();
+  private RNMixer mixer;
 
   public RNSoundPlayerModule(ReactApplicationContext reactContext) {
+    this(reactContext, false);
+  }
+
+  public RNSoundPlayerModule(ReactApplicationContext reactContext, boolean warmUpOnStart) {
     super(reactContext);
     this.reactContext = reactContext;
     this.volume = 1.0f;
+    this.playbackThread = new RNPlaybackThread();
+    this.playbackThread.setOnCommandErrorListener(new RNPlaybackThread.OnCommandErrorListener() {
+      @Override
+      public void onCommandError(Exception e) {
+        if (e instanceof IOException) {
+          playerState.fail(e.getMessage());
+          if (hasListeners(EVENT_FINISHED_LOADING)) {
+            WritableMap params = Arguments.createMap();
+            params.putBoolean("success", false);
+            params.putString("error", e.getMessage());
+            sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING, params);
+          }
+        } else {
+          Log.w(TAG, "Playback command failed", e);
+        }
+      }
+    });
+    this.playbackThread.setAfterCommand(this.snapshotRefresh);
+    this.playerState = new RNPlayerState(new RNPlayerState.Listener() {
+      @Override
+      public void onStateChanged(String state, String previousState, @Nullable String error) {
+        // Changes made by commands are published after the command; this covers player callbacks
+        playbackThread.getHandler().post(snapshotRefresh);
+        if (!hasListeners(EVENT_PLAYER_STATE_CHANGED)) {
+          return;
+        }
+        WritableMap params = Arguments.createMap();
+        params.putString("state", state);
+        params.putString("previousState", previousState);
+        if (error != null) {
+          params.putString("error", error);
+        }
+        sendEvent(getReactApplicationContext(), EVENT_PLAYER_STATE_CHANGED, params);
+      }
+    });
+    this.scheduler = new RNScheduler(this.playbackThread.getHandler(), new RNScheduler.Callback() {
+      @Override
+      public boolean onPrepareCue(RNScheduler.Cue cue) {
+        return prepareCue(cue);
+      }
+
+      @Override
+      public void onStartCue(RNScheduler.Cue cue) {
+        RNVoicePool.Voice voice = voicePool.get(cue.getVoiceId());
+        // The voice is gone if it was stolen since the cue was prepared
+        if (voice != null) {
+          voice.getPlayer().setVolume(cue.getVolume());
+          voice.getPlayer().play();
+        }
+      }
+    });
+    this.sampleCache = new RNSampleCache(RNSampleCache.DEFAULT_MAX_BYTES);
+    this.soundResolver = new RNSoundResolver(reactContext);
+    this.progressTracker = new RNProgressTracker(new RNProgressTracker.Callback() {
+      @Override
+      public IRNMediaPlayer getPlayer() {
+        return mediaPlayer;
+      }
+
+      @Override
+      public void onProgress(long positionMs, long durationMs) {
+        if (!hasListeners(EVENT_PLAYBACK_PROGRESS)) {
+          return;
+        }
+        WritableMap params = Arguments.createMap();
+        params.putDouble("currentTime", positionMs / 1000.0);
+        params.putDouble("duration", durationMs / 1000.0);
+        sendEvent(getReactApplicationContext(), EVENT_PLAYBACK_PROGRESS, params);
+      }
+    });
+    this.streamCache = new RNStreamCache(reactContext);
+    this.prefetcher = new RNPrefetcher(this.streamCache);
+    this.analyzer = new RNAnalyzer(reactContext);
+    this.prefetcher.setOnProgressListener(new RNPrefetcher.OnProgressListener() {
+      @Override
+      public void onProgress(int batchId, int completed, int failed, int total, long bytesCached, boolean done) {
+        if (!hasListeners(EVENT_PRELOAD_PROGRESS)) {
+          return;
+        }
+        WritableMap params = Arguments.createMap();
+        params.putInt("batchId", batchId);
+        params.putInt("completed", completed);
+        params.putInt("failed", failed);
+        params.putInt("total", total);
+        params.putDouble("bytesCached", bytesCached);
+        params.putBoolean("done", done);
+        sendEvent(getReactApplicationContext(), EVENT_PRELOAD_PROGRESS, params);
+      }
+    });
+    this.voicePool = new RNVoicePool(RNVoicePool.DEFAULT_MAX_VOICES);
+    this.voicePool.setOnVoiceStolenListener(new RNVoicePool.OnVoiceStolenListener() {
+      @Override
+      public void onVoiceStolen(RNVoicePool.Voice voice, int stolenVoiceId) {
+        if (!hasListeners(EVENT_FINISHED_PLAYING)) {
+          return;
+        }
+        WritableMap params = Arguments.createMap();
+        params.putBoolean("success", false);
+        params.putInt("voiceId", stolenVoiceId);
+        sendEvent(getReactApplicationContext(), EVENT_FINISHED_PLAYING, params);
+      }
+    });
+    this.memoryCallbacks = new ComponentCallbacks2() {
+      @Override
+      public void onTrimMemory(int level) {
+        trimMemory(level);
+      }
+
+      @Override
+      public void onConfigurationChanged(Configuration newConfig) {
+
+      }
+
+      @Override
+      public void onLowMemory() {
+        trimMemory(TRIM_MEMORY_COMPLETE);
+      }
+    };
+    reactContext.getApplicationContext().registerComponentCallbacks(this.memoryCallbacks);
+    reactContext.addLifecycleEventListener(this);
+    if (warmUpOnStart) {
+      this.playbackThread.post(new RNPlaybackThread.Command() {
+        @Override
+        public void run() {
+          warmUpPlayers(new ArrayList<RNSoundResolver.Source>());
+        }
+      });
+    }
+  }
+
+  RNPlaybackThread getPlaybackThread() {
+    return this.playbackThread;
   }
 
   @Override
@@ -41,162 +273,1466 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule {
     return "RNSoundPlayer";
   }
 
+  @Override
+  public void onHostResume() {
+
+  }
+
+  @Override
+  public void onHostPause() {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        voicePool.releaseIdlePlayers();
+      }
+    });
+  }
+
+  @Override
+  public void onHostDestroy() {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        releaseIdlePlayers();
+      }
+    });
+  }
+
+  @Override
+  public void onCatalystInstanceDestroy() {
+    super.onCatalystInstanceDestroy();
+    this.reactContext.removeLifecycleEventListener(this);
+    this.reactContext.getApplicationContext().unregisterComponentCallbacks(this.memoryCallbacks);
+    this.prefetcher.cancel();
+    this.analyzer.release();
+    this.soundResolver.release();
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        playbackThread.setIdleTimeout(0, null);
+        scheduler.cancelAll();
+        cancelDelayedPlay();
+        progressTracker.stop();
+        playbackThread.getHandler().removeCallbacks(levelsTick);
+        voicePool.releaseAll();
+        if (mixer != null) {
+          mixer.release();
+        }
+        if (mediaPlayer != null) {
+          mediaPlayer.release();
+          mediaPlayer = null;
+        }
+        mountedEntry = null;
+        releasePreparedPlayers();
+        lastLoad = null;
+        playerReleased = false;
+        sampleCache.clear();
+        playbackThread.quit();
+      }
+    });
+  }
+
+  @ReactMethod
+  public void playSoundFile(final String name, final String type) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        mountSoundFile(name, type, null);
+        resumePlayer();
+      }
+    });
+  }
+
+  @ReactMethod
+  public void playSoundFileWithDelay(final String name, final String type, double delay) {
+    final long startAtMs = SystemClock.uptimeMillis() + (long) (delay * 1000);
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        mountSoundFile(name, type, null);
+        delayedPlayPending = true;
+        playbackThread.getHandler().postAtTime(new Runnable() {
+          @Override
+          public void run() {
+            delayedPlayPending = false;
+            resumePlayer();
+          }
+        }, delayedPlayToken, startAtMs);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void scheduleSoundFiles(ReadableArray cues, final Promise promise) {
+    // Offsets are from the moment the call reaches native code, so a busy playback thread does not shift them
+    final long baseMs = SystemClock.uptimeMillis();
+    final List<ReadableMap> cueList = new ArrayList<>(cues.size());
+    for (int i = 0; i < cues.size(); i++) {
+      cueList.add(cues.getMap(i));
+    }
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        WritableArray ids = Arguments.createArray();
+        for (ReadableMap cue : cueList) {
+          ids.pushInt(scheduler.schedule(
+                  cue.getString("name"),
+                  cue.getString("type"),
+                  baseMs + (long) cue.getDouble("offsetMs"),
+                  cue.hasKey("volume") ? (float) cue.getDouble("volume") : 1.0f,
+                  getInt(cue, "priority", 0)));
+        }
+        promise.resolve(ids);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void cancelScheduled(final int cueId) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        RNScheduler.Cue cue = scheduler.cancel(cueId);
+        if (cue != null) {
+          releaseCueVoice(cue);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void cancelAllScheduled() {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        for (RNScheduler.Cue cue : scheduler.cancelAll()) {
+          releaseCueVoice(cue);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void loadSoundFile(final String name, final String type) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        mountSoundFile(name, type, null);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void playSoundFileWithBackend(final String name, final String type, final String backend) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        mountSoundFile(name, type, getBackend(backend));
+        resumePlayer();
+      }
+    });
+  }
+
+  @ReactMethod
+  public void loadSoundFileWithBackend(final String name, final String type, final String backend) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        mountSoundFile(name, type, getBackend(backend));
+      }
+    });
+  }
+
+  @ReactMethod
+  public void playUrl(final String url) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        prepareUrl(url);
+        resumePlayer();
+      }
+    });
+  }
+
+  @ReactMethod
+  public void loadUrl(final String url) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        prepareUrl(url);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void playUrlWithProfile(final String url, final String profile) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        prepareUrl(url, getBufferingProfile(profile));
+        resumePlayer();
+      }
+    });
+  }
+
+  @ReactMethod
+  public void loadUrlWithProfile(final String url, final String profile) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        prepareUrl(url, getBufferingProfile(profile));
+      }
+    });
+  }
+
+  @ReactMethod
+  public void playUrlWithBackend(final String url, @Nullable final String profile, final String backend) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        prepareUrl(url, profile != null ? getBufferingProfile(profile) : bufferingProfile, getBackend(backend));
+        resumePlayer();
+      }
+    });
+  }
+
+  @ReactMethod
+  public void loadUrlWithBackend(final String url, @Nullable final String profile, final String backend) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        prepareUrl(url, profile != null ? getBufferingProfile(profile) : bufferingProfile, getBackend(backend));
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setBackend(final String backend) {
+    if (!RNBackendSelector.isValid(backend)) {
+      Log.w(TAG, "Unknown backend " + backend);
+      return;
+    }
+    this.backendSelector.setBackend(backend);
+  }
+
+  @ReactMethod
+  public void setNumberOfLoops(final int loops) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        // Like AVAudioPlayer, any negative value loops forever
+        RNSoundPlayerModule.this.loops = Math.max(loops, -1);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setLoopRegion(final double startMs, final double endMs) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        loopStartMs = (int) Math.max(startMs, 0);
+        loopEndMs = endMs > startMs ? (int) endMs : 0;
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setBufferingProfile(final String profile) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        bufferingProfile = getBufferingProfile(profile);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setCustomBufferingProfile(ReadableMap options) {
+    final RNBufferingProfile profile = RNBufferingProfile.custom(
+            getInt(options, "minBufferMs", DefaultLoadControl.DEFAULT_MIN_BUFFER_MS),
+            getInt(options, "maxBufferMs", DefaultLoadControl.DEFAULT_MAX_BUFFER_MS),
+            getInt(options, "bufferForPlaybackMs", DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS),
+            getInt(options, "bufferForPlaybackAfterRebufferMs", DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS),
+            getInt(options, "targetBufferBytes", 0));
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        customBufferingProfile = profile;
+        bufferingProfile = profile;
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setQueue(ReadableArray urls) {
+    final List<String> urlList = new ArrayList<>(urls.size());
+    for (int i = 0; i < urls.size(); i++) {
+      urlList.add(urls.getString(i));
+    }
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        prepareQueue(urlList);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void enqueue(final String url) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        if (mediaPlayer instanceof IRNQueuePlayer && !queueUrls.isEmpty()) {
+          queueUrls.add(url);
+          ((IRNQueuePlayer) mediaPlayer).enqueue(Uri.parse(url));
+        } else {
+          List<String> urlList = new ArrayList<>();
+          urlList.add(url);
+          prepareQueue(urlList);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void skipNext() {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        if (mediaPlayer instanceof IRNQueuePlayer) {
+          ((IRNQueuePlayer) mediaPlayer).skipNext();
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void skipPrevious() {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        if (mediaPlayer instanceof IRNQueuePlayer) {
+          ((IRNQueuePlayer) mediaPlayer).skipPrevious();
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void pause() {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        cancelDelayedPlay();
+        if (mediaPlayer != null) {
+          mediaPlayer.pause();
+          playerState.pause();
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void resume() {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        restorePlayer();
+        resumePlayer();
+      }
+    });
+  }
+
+  @ReactMethod
+  public void stop() {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        cancelDelayedPlay();
+        if (mediaPlayer != null) {
+          mediaPlayer.stop();
+          playerState.stop();
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void seek(final float seconds) {
+    seekMainPlayer(Math.round(seconds * 1000.0), IRNMediaPlayer.SEEK_DEFAULT);
+  }
+
+  @ReactMethod
+  public void seekTo(final double ms, @Nullable final String mode) {
+    int seekMode = IRNMediaPlayer.SEEK_DEFAULT;
+    if ("exact".equals(mode)) {
+      seekMode = IRNMediaPlayer.SEEK_EXACT;
+    } else if ("fast".equals(mode)) {
+      seekMode = IRNMediaPlayer.SEEK_FAST;
+    }
+    seekMainPlayer(Math.round(ms), seekMode);
+  }
+
+  private void seekMainPlayer(final long positionMs, final int mode) {
+    this.playbackThread.postCoalesced("seek", new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        if (mediaPlayer != null) {
+          mediaPlayer.seekTo((int) positionMs, mode);
+        } else if (playerReleased) {
+          releasedPositionMs = positionMs;
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setVolume(final float volume) {
+    this.playbackThread.postCoalesced("volume", new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        setPlayerVolume(volume);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void getInfo(
+          final Promise promise) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        if (mediaPlayer == null && !playerReleased) {
+          promise.resolve(null);
+          return;
+        }
+        WritableMap map = Arguments.createMap();
+        if (mediaPlayer != null) {
+          map.putDouble("currentTime", mediaPlayer.getCurrentPosition() / 1000.0);
+          map.putDouble("duration", mediaPlayer.getDuration() / 1000.0);
+        } else {
+          map.putDouble("currentTime", releasedPositionMs / 1000.0);
+          map.putDouble("duration", releasedDurationMs / 1000.0);
+        }
+        promise.resolve(map);
+      }
+    });
+  }
+
+  /**
+   * Reads the published snapshot, without calling the player or leaving the JS thread.
+   */
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  public double getCurrentTimeSync() {
+    return this.snapshot.getPositionMs() / 1000.0;
+  }
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  public WritableMap getStateSync() {
+    RNPlaybackSnapshot snapshot = this.snapshot;
+    WritableMap map = Arguments.createMap();
+    map.putString("state", snapshot.getState());
+    map.putDouble("currentTime", snapshot.getPositionMs() / 1000.0);
+    map.putDouble("duration", snapshot.getDurationMs() / 1000.0);
+    map.putDouble("bufferedTime", snapshot.getBufferedMs() / 1000.0);
+    return map;
+  }
+
+  @ReactMethod
+  public void startProgressUpdates(final double rateHz) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        progressTracker.start(rateHz);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void stopProgressUpdates() {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        progressTracker.stop();
+      }
+    });
+  }
+
+  /**
+   * Meters the levels of the main player from its next load, sending them every 1 / rateHz
+   * seconds as AudioLevels events, or only for getAudioLevelsSync() when rateHz is 0. Each
+   * reading covers the last windowMs. Only the ExoPlayer backend is metered.
+   */
+  @ReactMethod
+  public void startMetering(final double rateHz, final int windowMs) {
+    this.meteringWindowMs = Math.max(RNLevelMeter.SLOT_MS, Math.min(RNLevelMeter.MAX_WINDOW_MS, windowMs));
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        meteringEnabled = true;
+        if (levelMeter != null) {
+          levelMeter.setEnabled(true);
+        }
+        Handler handler = playbackThread.getHandler();
+        handler.removeCallbacks(levelsTick);
+        if (rateHz > 0) {
+          meteringIntervalMs = Math.round(1000 / Math.min(MAX_METERING_RATE_HZ, rateHz));
+          handler.post(levelsTick);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void stopMetering() {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        meteringEnabled = false;
+        if (levelMeter != null) {
+          levelMeter.setEnabled(false);
+        }
+        playbackThread.getHandler().removeCallbacks(levelsTick);
+        levelsSilent = true;
+      }
+    });
+  }
+
+  @Nullable
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  public WritableMap getAudioLevelsSync() {
+    RNLevelMeter meter = this.levelMeter;
+    if (meter == null) {
+      return null;
+    }
+    synchronized (this.syncPeak) {
+      int channels = meter.read(this.meteringWindowMs, this.syncPeak, this.syncRms);
+      return toLevelsMap(channels, this.syncPeak, this.syncRms);
+    }
+  }
+
+  @ReactMethod
+  public void getMetrics(Promise promise) {
+    WritableMap map = Arguments.createMap();
+    map.putMap("queueDelay", this.playbackThread.getQueueDelay().toWritableMap());
+    WritableMap backends = Arguments.createMap();
+    backends.putMap(RNPlaybackMetrics.EXOPLAYER, this.exoPlayerMetrics.toWritableMap());
+    backends.putMap(RNPlaybackMetrics.MEDIAPLAYER, this.mediaPlayerMetrics.toWritableMap());
+    backends.putMap(RNPlaybackMetrics.SAMPLE, this.sampleMetrics.toWritableMap());
+    backends.putMap(RNPlaybackMetrics.MIXER, this.mixerMetrics.toWritableMap());
+    map.putMap("backends", backends);
+    map.putMap("preparedPlayers", this.preparedPlayers.toWritableMap());
+    promise.resolve(map);
+  }
+
+  @ReactMethod
+  public void resetMetrics() {
+    this.playbackThread.getQueueDelay().reset();
+    this.exoPlayerMetrics.reset();
+    this.mediaPlayerMetrics.reset();
+    this.sampleMetrics.reset();
+    this.mixerMetrics.reset();
+    this.backendSelector.reset();
+    this.preparedPlayers.resetStats();
+  }
+
+  @ReactMethod
+  public void isDeviceMuted(final Promise promise) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        // Read without building a player when there is none
+        if (mediaPlayer != null) {
+          mediaPlayer.isDeviceMuted(promise);
+        } else {
+          promise.resolve(RNDeviceVolume.isMuted(getReactApplicationContext()));
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void getDeviceVolume(final Promise promise) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        // Read without building a player when there is none
+        if (mediaPlayer != null) {
+          mediaPlayer.getDeviceVolume(promise);
+        } else {
+          promise.resolve(RNDeviceVolume.getVolume(getReactApplicationContext()));
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void registerSounds(ReadableArray sounds) {
+    for (int i = 0; i < sounds.size(); i++) {
+      ReadableMap sound = sounds.getMap(i);
+      this.soundResolver.resolve(sound.getString("name"), sound.getString("type"));
+    }
+  }
+
+  @ReactMethod
+  public void invalidateSounds() {
+    this.soundResolver.invalidate();
+  }
+
+  @ReactMethod
+  public void loadSoundBank(final String name, final Promise promise) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        try {
+          WritableArray keys = Arguments.createArray();
+          for (String key : soundResolver.loadBank(name)) {
+            keys.pushString(key);
+          }
+          promise.resolve(keys);
+        } catch (IOException e) {
+          promise.reject("E_SOUND_BANK", e);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void unloadSoundBank(final String name) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        soundResolver.unloadBank(name);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void warmUp(ReadableArray sounds, final Promise promise) {
+    final List<String[]> soundList = new ArrayList<>(sounds.size());
+    for (int i = 0; i < sounds.size(); i++) {
+      ReadableMap sound = sounds.getMap(i);
+      soundList.add(new String[]{sound.getString("name"), sound.getString("type")});
+    }
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        List<RNSoundResolver.Source> sources = new ArrayList<>(soundList.size());
+        for (String[] sound : soundList) {
+          sources.add(soundResolver.resolve(sound[0], sound[1]));
+        }
+        warmUpPlayers(sources);
+        promise.resolve(null);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setIdleTimeout(final double timeoutMs) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        playbackThread.setIdleTimeout((long) timeoutMs, new Runnable() {
+          @Override
+          public void run() {
+            if (isBusy()) {
+              playbackThread.rescheduleIdle();
+            } else {
+              releaseIdlePlayers();
+            }
+          }
+        });
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setSampleEngineEnabled(final boolean enabled) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        useSampleEngine = enabled;
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setSampleCacheSize(int maxBytes) {
+    this.sampleCache.setMaxBytes(maxBytes);
+  }
+
+  /**
+   * Keeps up to maxPlayers players prepared on recently played sound files, each for keepMs
+   * after it stopped being the main player. 0 players, the default, disables it.
+   */
+  @ReactMethod
+  public void setPreparedPlayerCacheSize(final int maxPlayers, final double keepMs) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        for (IRNMediaPlayer player : preparedPlayers.setMaxSize(maxPlayers, (long) keepMs)) {
+          player.release();
+        }
+        schedulePreparedPlayersExpiry();
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setCacheEnabled(boolean enabled) {
+    this.streamCache.setEnabled(enabled);
+  }
+
+  @ReactMethod
+  public void setCacheSize(double maxBytes) {
+    this.streamCache.setMaxBytes((long) maxBytes);
+  }
+
+  /**
+   * Analyzes a sound file ({name, type}) or url ({url}) in the background, without touching the
+   * players. Resolves to its waveform peaks and loudness.
+   */
+  @ReactMethod
+  public void analyze(ReadableMap source, ReadableMap options, final Promise promise) {
+    int buckets = getInt(options, "buckets", RNAnalyzer.DEFAULT_BUCKETS);
+    RNAnalyzer.Callback callback = new RNAnalyzer.Callback() {
+      @Override
+      public void onAnalyzed(RNAudioAnalysis.Result result, boolean cached) {
+        promise.resolve(toWritableMap(result, cached));
+      }
+
+      @Override
+      public void onError(Exception e) {
+        promise.reject("E_ANALYZE", e);
+      }
+    };
+    if (source.hasKey("url")) {
+      this.analyzer.analyze(Uri.parse(source.getString("url")),
+              this.streamCache.getDataSourceFactory(), buckets, callback);
+    } else {
+      this.analyzer.analyze(this.soundResolver.resolve(source.getString("name"), source.getString("type")),
+              buckets, callback);
+    }
+  }
+
+  private static WritableMap toWritableMap(RNAudioAnalysis.Result result, boolean cached) {
+    WritableMap map = Arguments.createMap();
+    map.putDouble("duration", result.getDurationMs() / 1000.0);
+    map.putInt("sampleRate", result.getSampleRate());
+    map.putInt("channels", result.getChannelCount());
+    WritableArray min = Arguments.createArray();
+    WritableArray max = Arguments.createArray();
+    for (int i = 0; i < result.getMin().length; i++) {
+      min.pushDouble(result.getMin()[i]);
+      max.pushDouble(result.getMax()[i]);
+    }
+    map.putArray("min", min);
+    map.putArray("max", max);
+    map.putDouble("rms", result.getRms());
+    map.putDouble("peak", result.getPeak());
+    // Silent sounds have no loudness
+    if (Double.isNaN(result.getLoudness())) {
+      map.putNull("loudness");
+      map.putNull("replayGain");
+    } else {
+      map.putDouble("loudness", result.getLoudness());
+      map.putDouble("replayGain", result.getReplayGain());
+    }
+    map.putBoolean("cached", cached);
+    return map;
+  }
+
+  /**
+   * Counts a subscription of the JS wrapper to an event. Events are only sent while subscribed to.
+   */
+  @ReactMethod
+  public void subscribe(String eventName) {
+    synchronized (this.listenerCounts) {
+      Integer count = this.listenerCounts.get(eventName);
+      this.listenerCounts.put(eventName, count != null ? count + 1 : 1);
+    }
+  }
+
+  @ReactMethod
+  public void unsubscribe(String eventName) {
+    synchronized (this.listenerCounts) {
+      Integer count = this.listenerCounts.get(eventName);
+      if (count == null) {
+        return;
+      }
+      if (count > 1) {
+        this.listenerCounts.put(eventName, count - 1);
+      } else {
+        this.listenerCounts.remove(eventName);
+      }
+    }
+  }
+
+  /**
+   * Required by NativeEventEmitter. Its removeListeners only tells a count, not the events, so
+   * subscriptions are counted by subscribe and unsubscribe instead.
+   */
+  @ReactMethod
+  public void addListener(String eventName) {
+  }
+
+  @ReactMethod
+  public void removeListeners(double count) {
+  }
+
+  @ReactMethod
+  public void setHttpOptions(ReadableMap options) {
+    HashMap<String, String> headers = new HashMap<>();
+    if (options.hasKey("headers") && !options.isNull("headers")) {
+      ReadableMap headerMap = options.getMap("headers");
+      ReadableMapKeySetIterator iterator = headerMap.keySetIterator();
+      while (iterator.hasNextKey()) {
+        String name = iterator.nextKey();
+        headers.put(name, headerMap.getString(name));
+      }
+    }
+    String userAgent = options.hasKey("userAgent") && !options.isNull("userAgent")
+            ? options.getString("userAgent")
+            : null;
+    this.streamCache.setHttpConfig(RNHttpConfig.create(
+            getInt(options, "connectTimeoutMs", RNHttpConfig.DEFAULT_CONNECT_TIMEOUT_MS),
+            getInt(options, "readTimeoutMs", RNHttpConfig.DEFAULT_READ_TIMEOUT_MS),
+            userAgent,
+            headers,
+            getInt(options, "maxRetries", RNHttpConfig.DEFAULT_MAX_RETRIES),
+            getInt(options, "retryBaseDelayMs", RNHttpConfig.DEFAULT_RETRY_BASE_DELAY_MS),
+            getInt(options, "retryMaxDelayMs", RNHttpConfig.DEFAULT_RETRY_MAX_DELAY_MS)));
+  }
+
+  @ReactMethod
+  public void getCacheStats(Promise promise) {
+    WritableMap map = Arguments.createMap();
+    map.putBoolean("enabled", this.streamCache.isEnabled());
+    map.putDouble("maxBytes", this.streamCache.getMaxBytes());
+    map.putDouble("sizeBytes", this.streamCache.getCacheSizeBytes());
+    map.putDouble("bytesFromCache", this.streamCache.getCachedBytesRead());
+    map.putDouble("bytesFromNetwork", this.streamCache.getNetworkBytesRead());
+    map.putDouble("hitRatio", this.streamCache.getHitRatio());
+    promise.resolve(map);
+  }
+
+  @ReactMethod
+  public void clearCache() {
+    this.streamCache.clear();
+  }
+
+  @ReactMethod
+  public void preloadUrls(ReadableArray urls, double maxBytesPerUrl, int parallelism, Promise promise) {
+    List<String> urlList = new ArrayList<>(urls.size());
+    for (int i = 0; i < urls.size(); i++) {
+      urlList.add(urls.getString(i));
+    }
+    int batchId = this.prefetcher.prefetch(urlList, (long) maxBytesPerUrl, parallelism);
+    if (batchId == 0) {
+      promise.reject("E_CACHE_DISABLED", "preloadUrls needs the url cache, call setCacheEnabled(true) first");
+      return;
+    }
+    promise.resolve(batchId);
+  }
+
+  @ReactMethod
+  public void cancelPreload() {
+    this.prefetcher.cancel();
+  }
+
+  @ReactMethod
+  public void setMaxVoices(final int maxVoices) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        voicePool.setMaxVoices(maxVoices);
+      }
+    });
+  }
+
+  @ReactMethod
+  public void playSoundFileVoice(final String name, final String type, final int priority, final Promise promise) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        RNSoundResolver.Source source = soundResolver.resolve(name, type);
+        RNVoicePool.Voice voice = acquireVoice(priority, selectSoundFileBackend(source, null));
+        if (voice == null) {
+          promise.reject("E_NO_VOICE", "All voices are busy with higher priority sounds");
+          return;
+        }
+        try {
+          setSoundFileSource(voice.getPlayer(), source);
+          startVoice(voice);
+          promise.resolve(voice.getId());
+        } catch (IOException e) {
+          voicePool.release(voice.getId());
+          promise.reject("E_VOICE_LOAD", e);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void playUrlVoice(final String url, final int priority, final Promise promise) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        Uri uri = Uri.parse(url);
+        String backend = backendSelector.select(null, RNBackendSelector.getSourceKind(uri), RNBackendSelector.getSizeBytes(uri));
+        RNVoicePool.Voice voice = acquireVoice(priority, backend);
+        if (voice == null) {
+          promise.reject("E_NO_VOICE", "All voices are busy with higher priority sounds");
+          return;
+        }
+        try {
+          setUrlSource(voice.getPlayer(), uri);
+          startVoice(voice);
+          promise.resolve(voice.getId());
+        } catch (IOException e) {
+          voicePool.release(voice.getId());
+          promise.reject("E_VOICE_LOAD", e);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void pauseVoice(final int voiceId) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        RNVoicePool.Voice voice = voicePool.get(voiceId);
+        if (voice != null) {
+          voice.getPlayer().pause();
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void resumeVoice(final int voiceId) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        RNVoicePool.Voice voice = voicePool.get(voiceId);
+        if (voice != null) {
+          voice.getPlayer().play();
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void stopVoice(final int voiceId) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        RNVoicePool.Voice voice = voicePool.get(voiceId);
+        if (voice != null) {
+          voice.getPlayer().stop();
+          voicePool.release(voiceId);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void seekVoice(final int voiceId, final float seconds) {
+    this.playbackThread.postCoalesced("seek:" + voiceId, new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        RNVoicePool.Voice voice = voicePool.get(voiceId);
+        if (voice != null) {
+          voice.getPlayer().seekTo((int) (seconds * 1000));
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setVoiceVolume(final int voiceId, final float volume) {
+    this.playbackThread.postCoalesced("volume:" + voiceId, new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        RNVoicePool.Voice voice = voicePool.get(voiceId);
+        if (voice != null) {
+          voice.getPlayer().setVolume(volume);
+        }
+      }
+    });
+  }
+
+  @ReactMethod
+  public void setVoicePan(final int voiceId, final float pan) {
+    this.playbackThread.postCoalesced("pan:" + voiceId, new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        RNVoicePool.Voice voice = voicePool.get(voiceId);
+        if (voice != null && voice.getPlayer() instanceof RNMixerPlayer) {
+          ((RNMixerPlayer) voice.getPlayer()).setPan(pan);
+        }
+      }
+    });
+  }
+
   @ReactMethod
-  public void playSoundFile(String name, String type) throws IOException {
-    mountSoundFile(name, type);
-    this.resume();
+  public void setMixerMaxChannels(final int maxChannels) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        getMixer().setMaxChannels(maxChannels);
+      }
+    });
   }
 
   @ReactMethod
-  public void loadSoundFile(String name, String type) throws IOException {
-    mountSoundFile(name, type);
+  public void getVoiceInfo(final int voiceId, final Promise promise) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        RNVoicePool.Voice voice = voicePool.get(voiceId);
+        if (voice == null) {
+          promise.resolve(null);
+          return;
+        }
+        WritableMap map = Arguments.createMap();
+        map.putInt("voiceId", voiceId);
+        map.putDouble("currentTime", voice.getPlayer().getCurrentPosition() / 1000.0);
+        map.putDouble("duration", voice.getPlayer().getDuration() / 1000.0);
+        promise.resolve(map);
+      }
+    });
   }
 
-  @ReactMethod
-  public void playUrl(String url) throws IOException {
-    prepareUrl(url);
-    this.resume();
+  /**
+   * Builds the player ahead of the first play, then primes a decoder for each sound, or decodes
+   * it into the sample cache when it will be played by the sample engine.
+   */
+  private void warmUpPlayers(List<RNSoundResolver.Source> sources) {
+    if (this.mediaPlayer == null) {
+      this.mediaPlayer = createMainPlayer(this.backendSelector.getQueueBackend(), this.bufferingProfile);
+    }
+    Set<String> warmMimeTypes = new HashSet<>();
+    for (RNSoundResolver.Source source : sources) {
+      String backend = selectSoundFileBackend(source, null);
+      if (RNPlaybackMetrics.SAMPLE.equals(backend) || RNPlaybackMetrics.MIXER.equals(backend)) {
+        RNSamplePlayer.preload(getReactApplicationContext(), this.sampleCache, source);
+        continue;
+      }
+      try {
+        RNSampleDecoder.warmUpDecoder(getReactApplicationContext(), source, warmMimeTypes);
+      } catch (IOException e) {
+        Log.w(TAG, "Could not warm up decoder", e);
+      }
+    }
   }
 
-  @ReactMethod
-  public void loadUrl(String url) throws IOException {
-    prepareUrl(url);
+  /**
+   * Publishes the state of the main player for the sync getters. Runs after every command and
+   * state change and, while the player is preparing or playing, every SNAPSHOT_REFRESH_MS.
+   */
+  private void publishSnapshot() {
+    Handler handler = this.playbackThread.getHandler();
+    handler.removeCallbacks(this.snapshotRefresh);
+    this.levelMeter = this.mediaPlayer instanceof RNExoPlayer ? ((RNExoPlayer) this.mediaPlayer).getLevelMeter() : null;
+    if (this.mediaPlayer != null) {
+      this.snapshot = new RNPlaybackSnapshot(
+              this.playerState.getState(),
+              this.mediaPlayer.isPlaying(),
+              this.mediaPlayer.getCurrentPosition(),
+              this.mediaPlayer.getDuration(),
+              this.mediaPlayer.getBufferedPosition());
+      String state = this.playerState.getState();
+      // Nothing moves while paused, ended or failed, so the playback thread can sleep
+      if (RNPlayerState.PLAYING.equals(state) || RNPlayerState.PREPARING.equals(state)) {
+        handler.postDelayed(this.snapshotRefresh, SNAPSHOT_REFRESH_MS);
+      }
+    } else if (this.playerReleased) {
+      this.snapshot = new RNPlaybackSnapshot(
+              this.playerState.getState(), false, this.releasedPositionMs, this.releasedDurationMs, 0);
+    } else {
+      this.snapshot = new RNPlaybackSnapshot(this.playerState.getState(), false, 0, 0, 0);
+    }
   }
 
-  @ReactMethod
-  public void pause() throws IllegalStateException {
-    if (this.mediaPlayer != null) {
-      this.mediaPlayer.pause();
+  /**
+   * Sends the levels of the main player, once more as silence when it stops producing audio.
+   */
+  private void publishLevels() {
+    RNLevelMeter meter = this.levelMeter;
+    if (meter != null && hasListeners(EVENT_AUDIO_LEVELS)) {
+      int channels = meter.read(this.meteringWindowMs, this.levelsPeak, this.levelsRms);
+      if (channels > 0 || !this.levelsSilent) {
+        this.levelsSilent = channels == 0;
+        sendEvent(getReactApplicationContext(), EVENT_AUDIO_LEVELS,
+                toLevelsMap(channels, this.levelsPeak, this.levelsRms));
+      }
     }
+    this.playbackThread.getHandler().postDelayed(this.levelsTick, this.meteringIntervalMs);
   }
 
-  @ReactMethod
-  public void resume() throws IOException, IllegalStateException {
-    if (this.mediaPlayer != null) {
-      this.setVolume(this.volume);
-      this.mediaPlayer.play();
+  private static WritableMap toLevelsMap(int channels, float[] peak, float[] rms) {
+    WritableArray peakArray = Arguments.createArray();
+    WritableArray rmsArray = Arguments.createArray();
+    for (int c = 0; c < channels; c++) {
+      peakArray.pushDouble(peak[c]);
+      rmsArray.pushDouble(rms[c]);
     }
+    WritableMap map = Arguments.createMap();
+    map.putArray("peak", peakArray);
+    map.putArray("rms", rmsArray);
+    return map;
   }
 
-  @ReactMethod
-  public void stop() throws IllegalStateException {
-    if (this.mediaPlayer != null) {
-      this.mediaPlayer.stop();
+  private boolean isBusy() {
+    return (this.mediaPlayer != null && this.mediaPlayer.isPlaying())
+            || this.delayedPlayPending
+            || this.voicePool.hasActiveVoices()
+            || this.mixer != null && this.mixer.hasActiveChannels()
+            || this.scheduler.hasPendingCues();
+  }
+
+  /**
+   * Releases the players of free voices and the main player when it is not playing. A released
+   * main player is loaded again by the next resume().
+   */
+  private void releaseIdlePlayers() {
+    this.voicePool.releaseIdlePlayers();
+    releasePreparedPlayers();
+    // The mixer starts its render thread and AudioTrack again on the next play
+    if (this.mixer != null && !this.mixer.hasActiveChannels()) {
+      this.mixer.release();
+    }
+    // Queues cannot be restored where they were, so they are kept
+    if (this.mediaPlayer == null || this.mediaPlayer.isPlaying() || this.delayedPlayPending
+            || !this.queueUrls.isEmpty()) {
+      return;
+    }
+    this.releasedPositionMs = this.mediaPlayer.getCurrentPosition();
+    this.releasedDurationMs = this.mediaPlayer.getDuration();
+    this.mediaPlayer.release();
+    this.mediaPlayer = null;
+    this.mountedEntry = null;
+    this.playerReleased = this.lastLoad != null;
+    if (!this.playerReleased) {
+      this.playerState.reset();
     }
   }
 
-  @ReactMethod
-  public void seek(float seconds) throws IllegalStateException {
+  private void restorePlayer() throws IOException {
+    if (this.mediaPlayer != null || !this.playerReleased) {
+      return;
+    }
+    long positionMs = this.releasedPositionMs;
+    this.lastLoad.run();
+    if (positionMs > 0) {
+      this.mediaPlayer.seekTo((int) positionMs);
+    }
+  }
+
+  /**
+   * Frees memory in tiers: samples and free voices first, then the idle main player and every
+   * decoded sample, then preloads and resolved sounds.
+   */
+  private void trimMemory(final int level) {
+    this.playbackThread.post(new RNPlaybackThread.Command() {
+      @Override
+      public void run() {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+          sampleCache.trimTo(sampleCache.getSizeBytes() / 2);
+          voicePool.releaseIdlePlayers();
+          releasePreparedPlayers();
+        }
+        if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+          sampleCache.clear();
+          releaseIdlePlayers();
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+          prefetcher.cancel();
+          soundResolver.invalidate();
+        }
+      }
+    });
+  }
+
+  private void resumePlayer() {
     if (this.mediaPlayer != null) {
-      this.mediaPlayer.seekTo((int)seconds * 1000);
+      setPlayerVolume(this.volume);
+      this.mediaPlayer.play();
+      this.playerState.play();
     }
   }
 
-  @ReactMethod
-  public void setVolume(float volume) throws IOException {
+  private void setPlayerVolume(float volume) {
     this.volume = volume;
     if (this.mediaPlayer != null) {
       this.mediaPlayer.setVolume(volume);
     }
   }
 
-  @ReactMethod
-  public void getInfo(
-          Promise promise) {
-    if (this.mediaPlayer == null) {
-      promise.resolve(null);
-      return;
+  private RNVoicePool.Voice acquireVoice(int priority, String backend) {
+    RNVoicePool.Voice voice = this.voicePool.acquire(priority);
+    if (voice == null) {
+      return null;
     }
-    WritableMap map = Arguments.createMap();
-    map.putDouble("currentTime", this.mediaPlayer.getCurrentPosition() / 1000.0);
-    map.putDouble("duration", this.mediaPlayer.getDuration() / 1000.0);
-    promise.resolve(map);
+    if (voice.getPlayer() != null) {
+      voice.getPlayer().reset();
+      if (!backend.equals(RNBackendSelector.backendOf(voice.getPlayer()))) {
+        voice.getPlayer().release();
+        voice.setPlayer(null);
+      }
+    }
+    if (voice.getPlayer() == null) {
+      voice.setPlayer(createVoicePlayer(voice, backend));
+    }
+    return voice;
   }
 
-  @ReactMethod
-  public void isDeviceMuted(Promise promise) {
-    // Use a local variable
-    IRNMediaPlayer player = this.mediaPlayer;
-    if (player == null) {
-      player = createMediaPlayer();
+  private boolean prepareCue(RNScheduler.Cue cue) {
+    RNSoundResolver.Source source = this.soundResolver.resolve(cue.getName(), cue.getType());
+    RNVoicePool.Voice voice = acquireVoice(cue.getPriority(), selectSoundFileBackend(source, null));
+    if (voice == null) {
+      Log.w(TAG, "No voice for scheduled " + cue.getName() + "." + cue.getType());
+      return false;
+    }
+    try {
+      setSoundFileSource(voice.getPlayer(), source);
+      voice.getPlayer().prepare();
+      cue.setVoiceId(voice.getId());
+      return true;
+    } catch (IOException e) {
+      this.voicePool.release(voice.getId());
+      Log.w(TAG, "Could not load scheduled " + cue.getName() + "." + cue.getType(), e);
+      return false;
     }
-    player.isDeviceMuted(promise);
   }
 
-  @ReactMethod
-  public void getDeviceVolume(Promise promise) {
-    // Use a local variable
-    IRNMediaPlayer player = this.mediaPlayer;
-    if (player == null) {
-      player = createMediaPlayer();
+  private void releaseCueVoice(RNScheduler.Cue cue) {
+    RNVoicePool.Voice voice = this.voicePool.get(cue.getVoiceId());
+    if (voice != null) {
+      voice.getPlayer().reset();
+      this.voicePool.release(cue.getVoiceId());
+    }
+  }
+
+  private void cancelDelayedPlay() {
+    this.delayedPlayPending = false;
+    this.playbackThread.getHandler().removeCallbacksAndMessages(this.delayedPlayToken);
+  }
+
+  private void startVoice(RNVoicePool.Voice voice) throws IOException {
+    IRNMediaPlayer player = voice.getPlayer();
+    player.prepare();
+    player.setVolume(this.volume);
+    player.play();
+  }
+
+  private IRNMediaPlayer createVoicePlayer(final RNVoicePool.Voice voice, String backend) {
+    IRNMediaPlayer player = createPlayer(backend, this.bufferingProfile);
+    player.setOnCompletionListener(
+            new IRNOnCompletionListener() {
+              @Override
+              public void onCompletion(IRNMediaPlayer mediaPlayer) {
+                int voiceId = voice.getId();
+                voicePool.release(voiceId);
+                if (!hasListeners(EVENT_FINISHED_PLAYING)) {
+                  return;
+                }
+                WritableMap params = Arguments.createMap();
+                params.putBoolean("success", true);
+                params.putInt("voiceId", voiceId);
+                sendEvent(getReactApplicationContext(), EVENT_FINISHED_PLAYING, params);
+              }
+            });
+    player.setOnSeekCompleteListener(new IRNOnSeekCompleteListener() {
+      @Override
+      public void onSeekComplete(IRNMediaPlayer mediaPlayer, long latencyMs) {
+        if (!hasListeners(EVENT_SEEK_COMPLETE)) {
+          return;
+        }
+        WritableMap params = Arguments.createMap();
+        params.putInt("voiceId", voice.getId());
+        params.putDouble("currentTime", mediaPlayer.getCurrentPosition() / 1000.0);
+        params.putDouble("latencyMs", latencyMs);
+        sendEvent(getReactApplicationContext(), EVENT_SEEK_COMPLETE, params);
+      }
+    });
+    player.setOnErrorListener(new IRNOnErrorListener() {
+      @Override
+      public boolean onError(IRNMediaPlayer mp, int what, int extra, String whatString, String extraString) {
+        int voiceId = voice.getId();
+        voicePool.release(voiceId);
+        mp.reset();
+        if (!hasListeners(EVENT_FINISHED_PLAYING)) {
+          return true;
+        }
+
+        WritableMap params = Arguments.createMap();
+        params.putBoolean("success", false);
+        params.putInt("voiceId", voiceId);
+
+        WritableMap extraMap = Arguments.createMap();
+        extraMap.putInt("what", what);
+        extraMap.putString("whatString", whatString);
+        extraMap.putInt("extra", extra);
+        extraMap.putString("extraString", extraString);
+        params.putMap("extra", extraMap);
+
+        sendEvent(getReactApplicationContext(), EVENT_FINISHED_PLAYING, params);
+        return true;
+      }
+    });
+    return player;
+  }
+
+  private boolean hasListeners(String eventName) {
+    synchronized (this.listenerCounts) {
+      return this.listenerCounts.containsKey(eventName);
     }
-    player.getDeviceVolume(promise);
   }
 
   private void sendEvent(ReactApplicationContext reactContext,
           String eventName,
           @Nullable WritableMap params) {
+    if (!hasListeners(eventName)) {
+      return;
+    }
     reactContext
             .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
             .emit(eventName, params);
   }
 
-  private void mountSoundFile(String name, String type) throws IOException {
-    int soundResID = getReactApplicationContext().getResources().getIdentifier(name, "raw", getReactApplicationContext().getPackageName());
-
-    if (this.mediaPlayer == null) {
-      this.mediaPlayer = createMediaPlayer();
-      if (soundResID > 0) {
-        this.mediaPlayer.setRawResourceId(soundResID);
-      } else {
-        this.mediaPlayer.setUri(this.getUriFromFile(name, type));
+  private void mountSoundFile(final String name, final String type, @Nullable final String backend) throws IOException {
+    cancelDelayedPlay();
+    this.playerState.prepare();
+    this.playerReleased = false;
+    this.lastLoad = new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        mountSoundFile(name, type, backend);
       }
+    };
+    this.queueUrls.clear();
+    RNSoundResolver.Source source = this.soundResolver.resolve(name, type);
+    int sourceKind = source.getResourceId() > 0 ? RNBackendSelector.SOURCE_RAW : RNBackendSelector.SOURCE_FILE;
+    String selectedBackend = selectSoundFileBackend(source, backend);
+    // Looping players count down their loops, and the sample engine and mixer prepare from memory already
+    boolean keepPrepared = this.loops == 0 && this.preparedPlayers.isEnabled()
+            && (RNPlaybackMetrics.EXOPLAYER.equals(selectedBackend) || RNPlaybackMetrics.MEDIAPLAYER.equals(selectedBackend));
+    String key = name + "." + type + "@" + selectedBackend;
+    if (keepPrepared && rewindPreparedPlayer(key, source, selectedBackend)) {
+      return;
+    }
+    mountPlayer(selectedBackend, null);
 
-      this.mediaPlayer.setOnCompletionListener(
-              new IRNOnCompletionListener() {
-                @Override
-                public void onCompletion(IRNMediaPlayer arg0) {
-                  WritableMap params = Arguments.createMap();
-                  params.putBoolean("success", true);
-                  sendEvent(getReactApplicationContext(), EVENT_FINISHED_PLAYING, params);
+    final IRNOnPreparedListener onLoaded = new IRNOnPreparedListener() {
+      @Override
+      public void onPrepared(IRNMediaPlayer mediaPlayer) {
+        playerState.prepared();
+        if (hasListeners(EVENT_FINISHED_LOADING)) {
+          WritableMap params = Arguments.createMap();
+          params.putBoolean("success", true);
+          sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING, params);
+        }
+        if (hasListeners(EVENT_FINISHED_LOADING_FILE)) {
+          WritableMap onFinishedLoadingFileParams = Arguments.createMap();
+          onFinishedLoadingFileParams.putBoolean("success", true);
+          onFinishedLoadingFileParams.putString("name", name);
+          onFinishedLoadingFileParams.putString("type", type);
+          sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING_FILE, onFinishedLoadingFileParams);
+        }
+      }
+    };
+    final RNPreparedPlayerCache.Entry entry = keepPrepared
+            ? new RNPreparedPlayerCache.Entry(key, this.mediaPlayer, source, onLoaded)
+            : null;
+    this.mountedEntry = entry;
+    this.mediaPlayer.setOnCompletionListener(
+            new IRNOnCompletionListener() {
+              @Override
+              public void onCompletion(IRNMediaPlayer arg0) {
+                playerState.complete();
+                if (!hasListeners(EVENT_FINISHED_PLAYING)) {
+                  return;
                 }
-              });
-    } else {
-      this.mediaPlayer.reset();
-      if (soundResID > 0) {
-        this.mediaPlayer.setRawResourceId(soundResID);
-      } else {
-        this.mediaPlayer.setUri(this.getUriFromFile(name, type));
+                WritableMap params = Arguments.createMap();
+                params.putBoolean("success", true);
+                sendEvent(getReactApplicationContext(), EVENT_FINISHED_PLAYING, params);
+              }
+            });
+    this.mediaPlayer.setOnErrorListener(new IRNOnErrorListener() {
+      @Override
+      public boolean onError(IRNMediaPlayer mp, int what, int extra, String whatString, String extraString) {
+        if (entry != null) {
+          entry.setPrepared(false);
+        }
+        if (mp != mediaPlayer) {
+          // A kept player failing in the background is only dropped
+          if (preparedPlayers.remove(mp)) {
+            mp.release();
+          }
+          return true;
+        }
+        mp.reset();
+        playerState.fail(whatString);
+        return true;
       }
-      this.mediaPlayer.prepare();
-    }
-
-    WritableMap params = Arguments.createMap();
-    params.putBoolean("success", true);
-    sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING, params);
-    WritableMap onFinishedLoadingFileParams = Arguments.createMap();
-    onFinishedLoadingFileParams.putBoolean("success", true);
-    onFinishedLoadingFileParams.putString("name", name);
-    onFinishedLoadingFileParams.putString("type", type);
-    sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING_FILE, onFinishedLoadingFileParams);
+    });
+    this.mediaPlayer.setOnPreparedListener(createPrepareRecorder(sourceKind, selectedBackend,
+            new IRNOnPreparedListener() {
+              @Override
+              public void onPrepared(IRNMediaPlayer mediaPlayer) {
+                if (entry != null) {
+                  entry.setPrepared(true);
+                }
+                onLoaded.onPrepared(mediaPlayer);
+              }
+            }
+    ));
+    this.mediaPlayer.setLooping(this.loops, this.loopStartMs, this.loopEndMs);
+    setSoundFileSource(this.mediaPlayer, source);
+    this.mediaPlayer.prepare();
   }
 
-  private Uri getUriFromFile(String name, String type) {
-    String folder = getReactApplicationContext().getFilesDir().getAbsolutePath();
-    String file = name + "." + type;
-
-    // http://blog.weston-fl.com/android-mediaplayer-prepare-throws-status0x1-error1-2147483648
-    // this helps avoid a common error state when mounting the file
-    File ref = new File(folder + "/" + file);
+  private String selectSoundFileBackend(RNSoundResolver.Source source, @Nullable String backend) {
+    if (backend == null && this.useSampleEngine) {
+      backend = RNPlaybackMetrics.SAMPLE;
+    }
+    int sourceKind = source.getResourceId() > 0 ? RNBackendSelector.SOURCE_RAW : RNBackendSelector.SOURCE_FILE;
+    return this.backendSelector.select(backend, sourceKind, source.getSizeBytes());
+  }
 
-    if (ref.exists()) {
-      ref.setReadable(true, false);
+  private void setSoundFileSource(IRNMediaPlayer player, RNSoundResolver.Source source) throws IOException {
+    if (player instanceof RNExoPlayer) {
+      ((RNExoPlayer) player).setDataSourceFactory(null);
+    }
+    if (source.getClip() != null) {
+      player.setSoundBankClip(source.getClip());
+    } else if (source.getResourceId() > 0) {
+      player.setRawResourceId(source.getResourceId());
+    } else {
+      player.setUri(source.getUri());
     }
+  }
 
-    return Uri.parse("file://" + folder + "/" + file);
+  private void setUrlSource(IRNMediaPlayer player, Uri uri) throws IOException {
+    if (player instanceof RNExoPlayer) {
+      String scheme = uri.getScheme();
+      boolean isHttp = "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme);
+      if (isHttp) {
+        ((RNExoPlayer) player).setDataSourceFactory(this.streamCache.getDataSourceFactory(),
+                this.streamCache.getHttpConfig().getRetryPolicy());
+      } else {
+        ((RNExoPlayer) player).setDataSourceFactory(null);
+      }
+    }
+    player.setUri(uri);
   }
 
-  private void setMediaPlayerListeners(final String url) {
+  private void setMediaPlayerListeners(final String url, int sourceKind, String backend) {
     if (this.mediaPlayer == null) {
       return;
     }
@@ -205,6 +1741,10 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule {
       @Override
       public boolean onError(IRNMediaPlayer mp, int what, int extra, String whatString, String extraString) {
         mp.reset();
+        playerState.fail(whatString);
+        if (!hasListeners(EVENT_FINISHED_LOADING_URL)) {
+          return true;
+        }
 
         WritableMap params = Arguments.createMap();
         params.putBoolean("success", false);
@@ -226,47 +1766,366 @@ public class RNSoundPlayerModule extends ReactContextBaseJavaModule {
             new IRNOnCompletionListener() {
               @Override
               public void onCompletion(IRNMediaPlayer mediaPlayer) {
+                playerState.complete();
+                if (!hasListeners(EVENT_FINISHED_PLAYING)) {
+                  return;
+                }
                 WritableMap params = Arguments.createMap();
                 params.putBoolean("success", true);
                 params.putString("url", url);
                 sendEvent(getReactApplicationContext(), EVENT_FINISHED_PLAYING, params);
               }
             });
-    this.mediaPlayer.setOnPreparedListener(
+    this.mediaPlayer.setOnPreparedListener(createPrepareRecorder(sourceKind, backend,
             new IRNOnPreparedListener() {
               @Override
               public void onPrepared(IRNMediaPlayer mediaPlayer) {
-                WritableMap onFinishedLoadingURLParams = Arguments.createMap();
-                onFinishedLoadingURLParams.putBoolean("success", true);
-                onFinishedLoadingURLParams.putString("url", url);
-                sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING_URL, onFinishedLoadingURLParams);
+                playerState.prepared();
+                if (hasListeners(EVENT_FINISHED_LOADING)) {
+                  WritableMap params = Arguments.createMap();
+                  params.putBoolean("success", true);
+                  params.putString("url", url);
+                  sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING, params);
+                }
+                if (hasListeners(EVENT_FINISHED_LOADING_URL)) {
+                  WritableMap onFinishedLoadingURLParams = Arguments.createMap();
+                  onFinishedLoadingURLParams.putBoolean("success", true);
+                  onFinishedLoadingURLParams.putString("url", url);
+                  sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING_URL, onFinishedLoadingURLParams);
+                }
               }
             }
-    );
+    ));
+  }
+
+  /**
+   * Wraps a prepared listener to feed the first prepare latency to the backend selector.
+   */
+  private IRNOnPreparedListener createPrepareRecorder(final int sourceKind, final String backend,
+          @Nullable final IRNOnPreparedListener listener) {
+    final long startedAtNs = System.nanoTime();
+    return new IRNOnPreparedListener() {
+      private boolean recorded;
+
+      @Override
+      public void onPrepared(IRNMediaPlayer mediaPlayer) {
+        if (!recorded) {
+          recorded = true;
+          backendSelector.recordPrepare(sourceKind, backend, startedAtNs);
+        }
+        if (listener != null) {
+          listener.onPrepared(mediaPlayer);
+        }
+      }
+    };
   }
 
   private void prepareUrl(final String url) throws IOException {
+    prepareUrl(url, this.bufferingProfile, null);
+  }
+
+  private void prepareUrl(final String url, RNBufferingProfile profile) throws IOException {
+    prepareUrl(url, profile, null);
+  }
+
+  private void prepareUrl(final String url, final RNBufferingProfile profile, @Nullable final String backend) throws IOException {
     Uri uri = Uri.parse(url);
+    cancelDelayedPlay();
+    this.playerState.prepare();
+    this.playerReleased = false;
+    this.lastLoad = new RNPlaybackThread.Command() {
+      @Override
+      public void run() throws IOException {
+        prepareUrl(url, profile, backend);
+      }
+    };
+    this.queueUrls.clear();
+    int sourceKind = RNBackendSelector.getSourceKind(uri);
+    String selectedBackend = this.backendSelector.select(backend, sourceKind, RNBackendSelector.getSizeBytes(uri));
+    mountPlayer(selectedBackend, profile);
+    setMediaPlayerListeners(url, sourceKind, selectedBackend);
+    this.mediaPlayer.setLooping(this.loops, this.loopStartMs, this.loopEndMs);
+    setUrlSource(this.mediaPlayer, uri);
+    this.mediaPlayer.prepare();
+  }
+
+  private void prepareQueue(final List<String> urls) throws IOException {
+    cancelDelayedPlay();
+    this.playerState.prepare();
+    this.playerReleased = false;
+    this.lastLoad = null;
+    mountPlayer(this.backendSelector.getQueueBackend(), null);
+    IRNQueuePlayer queuePlayer = (IRNQueuePlayer) this.mediaPlayer;
+    this.queueUrls.clear();
+    this.queueUrls.addAll(urls);
+    setQueueListeners(queuePlayer);
+
+    List<Uri> uris = new ArrayList<>(urls.size());
+    for (String url : urls) {
+      uris.add(Uri.parse(url));
+    }
+    if (queuePlayer instanceof RNExoPlayer) {
+      ((RNExoPlayer) queuePlayer).setDataSourceFactory(this.streamCache.getDataSourceFactory(),
+              this.streamCache.getHttpConfig().getRetryPolicy());
+    }
+    queuePlayer.setQueue(uris);
+    queuePlayer.prepare();
+  }
+
+  private void setQueueListeners(final IRNQueuePlayer queuePlayer) {
+    queuePlayer.setOnErrorListener(new IRNOnErrorListener() {
+      @Override
+      public boolean onError(IRNMediaPlayer mp, int what, int extra, String whatString, String extraString) {
+        String url = getQueueUrl(queuePlayer.getQueueIndex());
+        mp.reset();
+        playerState.fail(whatString);
+        if (!hasListeners(EVENT_FINISHED_LOADING_URL)) {
+          return true;
+        }
+
+        WritableMap params = Arguments.createMap();
+        params.putBoolean("success", false);
+        params.putString("url", url);
+
+        WritableMap extraMap = Arguments.createMap();
+        extraMap.putInt("what", what);
+        extraMap.putString("whatString", whatString);
+        extraMap.putInt("extra", extra);
+        extraMap.putString("extraString", extraString);
+        params.putMap("extra", extraMap);
+
+        sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING_URL, params);
+
+        return true;
+      }
+    });
+    queuePlayer.setOnCompletionListener(
+            new IRNOnCompletionListener() {
+              @Override
+              public void onCompletion(IRNMediaPlayer mediaPlayer) {
+                playerState.complete();
+                if (!hasListeners(EVENT_FINISHED_PLAYING)) {
+                  return;
+                }
+                WritableMap params = Arguments.createMap();
+                params.putBoolean("success", true);
+                params.putString("url", getQueueUrl(queuePlayer.getQueueIndex()));
+                sendEvent(getReactApplicationContext(), EVENT_FINISHED_PLAYING, params);
+              }
+            });
+    queuePlayer.setOnPreparedListener(
+            new IRNOnPreparedListener() {
+              @Override
+              public void onPrepared(IRNMediaPlayer mediaPlayer) {
+                playerState.prepared();
+                if (!hasListeners(EVENT_FINISHED_LOADING_URL)) {
+                  return;
+                }
+                WritableMap params = Arguments.createMap();
+                params.putBoolean("success", true);
+                params.putString("url", getQueueUrl(queuePlayer.getQueueIndex()));
+                sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING_URL, params);
+              }
+            });
+    queuePlayer.setOnQueueIndexChangedListener(
+            new IRNOnQueueIndexChangedListener() {
+              @Override
+              public void onQueueIndexChanged(IRNMediaPlayer mediaPlayer, int index) {
+                if (!hasListeners(EVENT_QUEUE_INDEX_CHANGED)) {
+                  return;
+                }
+                WritableMap params = Arguments.createMap();
+                params.putInt("index", index);
+                params.putString("url", getQueueUrl(index));
+                sendEvent(getReactApplicationContext(), EVENT_QUEUE_INDEX_CHANGED, params);
+              }
+            });
+  }
+
+  private String getQueueUrl(int index) {
+    return index >= 0 && index < this.queueUrls.size() ? this.queueUrls.get(index) : null;
+  }
+
+  private RNBufferingProfile getBufferingProfile(String name) {
+    if (RNBufferingProfile.CUSTOM.equals(name) && this.customBufferingProfile != null) {
+      return this.customBufferingProfile;
+    }
+    RNBufferingProfile profile = RNBufferingProfile.fromName(name);
+    if (profile == null) {
+      Log.w(TAG, "Unknown buffering profile " + name);
+      return this.bufferingProfile;
+    }
+    return profile;
+  }
+
+  private static int getInt(ReadableMap map, String key, int defaultValue) {
+    return map.hasKey(key) ? map.getInt(key) : defaultValue;
+  }
+
+  @Nullable
+  private String getBackend(String name) {
+    if (!RNBackendSelector.isValid(name)) {
+      Log.w(TAG, "Unknown backend " + name);
+      return null;
+    }
+    return name;
+  }
+
+  /**
+   * Makes this.mediaPlayer a reset player of the given backend, reusing the current one when
+   * possible. A null profile accepts an ExoPlayer built with any buffering profile.
+   */
+  private void mountPlayer(String backend, @Nullable RNBufferingProfile profile) {
+    for (IRNMediaPlayer evicted : parkMountedPlayer()) {
+      // Reused rather than building a new player
+      if (this.mediaPlayer == null) {
+        this.mediaPlayer = evicted;
+      } else {
+        evicted.release();
+      }
+    }
+    if (this.mediaPlayer != null && !canMount(this.mediaPlayer, backend, profile)) {
+      this.mediaPlayer.release();
+      this.mediaPlayer = null;
+    }
     if (this.mediaPlayer == null) {
-      this.mediaPlayer = createMediaPlayer();
-      setMediaPlayerListeners(url);
-      this.mediaPlayer.setUri(uri);
+      this.mediaPlayer = createMainPlayer(backend, profile != null ? profile : this.bufferingProfile);
     } else {
       this.mediaPlayer.reset();
-      this.mediaPlayer.setUri(uri);
     }
-    this.mediaPlayer.prepare();
-    WritableMap params = Arguments.createMap();
-    params.putBoolean("success", true);
-    params.putString("url", url);
-    sendEvent(getReactApplicationContext(), EVENT_FINISHED_LOADING, params);
+    this.mediaPlayer.setOnSeekCompleteListener(new IRNOnSeekCompleteListener() {
+      @Override
+      public void onSeekComplete(IRNMediaPlayer mediaPlayer, long latencyMs) {
+        if (!hasListeners(EVENT_SEEK_COMPLETE)) {
+          return;
+        }
+        WritableMap params = Arguments.createMap();
+        params.putDouble("currentTime", mediaPlayer.getCurrentPosition() / 1000.0);
+        params.putDouble("latencyMs", latencyMs);
+        sendEvent(getReactApplicationContext(), EVENT_SEEK_COMPLETE, params);
+      }
+    });
   }
 
-  private IRNMediaPlayer createMediaPlayer() {
-    if (useExoPlayer) {
-      return new RNExoPlayer(getCurrentActivity());
-    } else {
-      return new RNMediaPlayer(getCurrentActivity(), getReactApplicationContext());
+
+  /**
+   * Package-private so that tests can substitute the players of every backend.
+   */
+  IRNMediaPlayer createPlayer(String backend, RNBufferingProfile profile) {
+    if (RNPlaybackMetrics.SAMPLE.equals(backend)) {
+      return createSamplePlayer();
+    } else if (RNPlaybackMetrics.MIXER.equals(backend)) {
+      return new RNMixerPlayer(getReactApplicationContext(), getMixer(), this.sampleCache, this.mixerMetrics);
+    } else if (RNPlaybackMetrics.MEDIAPLAYER.equals(backend)) {
+      return new RNMediaPlayer(getReactApplicationContext(), getReactApplicationContext(), this.mediaPlayerMetrics);
+    }
+    return new RNExoPlayer(getReactApplicationContext(), profile, this.exoPlayerMetrics);
+  }
+
+  /**
+   * Whether player can become the main player for the backend. A null profile accepts any.
+   */
+  private boolean canMount(IRNMediaPlayer player, String backend, @Nullable RNBufferingProfile profile) {
+    return backend.equals(RNBackendSelector.backendOf(player))
+            // Buffer sizes are fixed when ExoPlayer is built
+            && !(profile != null && player instanceof RNExoPlayer
+            && ((RNExoPlayer) player).getBufferingProfile() != profile)
+            // So is the audio chain
+            && !(this.meteringEnabled && player instanceof RNExoPlayer
+            && ((RNExoPlayer) player).getLevelMeter() == null);
+  }
+
+  /**
+   * Makes a player prepared on the sound file the main player, rewound, and reports the sound
+   * loaded. Returns false, counting a miss, when there is none.
+   */
+  private boolean rewindPreparedPlayer(String key, RNSoundResolver.Source source, String backend) {
+    RNPreparedPlayerCache.Entry entry = this.mountedEntry;
+    if (entry == null || !key.equals(entry.getKey()) || entry.getPlayer() != this.mediaPlayer) {
+      entry = this.preparedPlayers.take(key);
+    }
+    // The resolver returns a new source once the file changed
+    if (entry == null || !entry.isPrepared() || entry.getSource() != source
+            || !canMount(entry.getPlayer(), backend, null)) {
+      if (entry == this.mountedEntry) {
+        // Loaded again in place by mountPlayer
+        this.mountedEntry = null;
+      } else if (entry != null) {
+        entry.getPlayer().release();
+      }
+      this.preparedPlayers.recordMiss();
+      return false;
+    }
+    this.preparedPlayers.recordHit();
+    if (entry != this.mountedEntry) {
+      for (IRNMediaPlayer evicted : parkMountedPlayer()) {
+        evicted.release();
+      }
+      if (this.mediaPlayer != null) {
+        this.mediaPlayer.release();
+      }
+      this.mediaPlayer = entry.getPlayer();
+      this.mountedEntry = entry;
+    }
+    this.mediaPlayer.rewindPrepared();
+    entry.getOnPreparedListener().onPrepared(this.mediaPlayer);
+    return true;
+  }
+
+  /**
+   * Moves the main player to the prepared players when it holds a prepared sound file, and
+   * returns the players that did not fit.
+   */
+  private List<IRNMediaPlayer> parkMountedPlayer() {
+    RNPreparedPlayerCache.Entry entry = this.mountedEntry;
+    this.mountedEntry = null;
+    if (entry == null || entry.getPlayer() != this.mediaPlayer || !entry.isPrepared()) {
+      return new ArrayList<>();
+    }
+    this.mediaPlayer.rewindPrepared();
+    this.mediaPlayer = null;
+    List<IRNMediaPlayer> evicted = this.preparedPlayers.put(entry);
+    schedulePreparedPlayersExpiry();
+    return evicted;
+  }
+
+  private void releasePreparedPlayers() {
+    this.playbackThread.getHandler().removeCallbacks(this.preparedPlayersExpiry);
+    for (IRNMediaPlayer player : this.preparedPlayers.clear()) {
+      player.release();
+    }
+  }
+
+  /**
+   * Releases each kept player once it has been kept for its time.
+   */
+  private void schedulePreparedPlayersExpiry() {
+    Handler handler = this.playbackThread.getHandler();
+    handler.removeCallbacks(this.preparedPlayersExpiry);
+    long expiryMs = this.preparedPlayers.getNextExpiryMs();
+    if (expiryMs >= 0) {
+      handler.postAtTime(this.preparedPlayersExpiry, expiryMs);
     }
   }
+
+  /**
+   * Same as createPlayer, with a level meter in the audio chain of an ExoPlayer while metering.
+   */
+  private IRNMediaPlayer createMainPlayer(String backend, RNBufferingProfile profile) {
+    if (this.meteringEnabled && RNPlaybackMetrics.EXOPLAYER.equals(backend)) {
+      return new RNExoPlayer(getReactApplicationContext(), profile, this.exoPlayerMetrics, new RNLevelMeter());
+    }
+    return createPlayer(backend, profile);
+  }
+
+  private RNMixer getMixer() {
+    if (this.mixer == null) {
+      this.mixer = new RNMixer(this.mixerMetrics, RNMixer.DEFAULT_MAX_CHANNELS);
+    }
+    return this.mixer;
+  }
+
+  private IRNMediaPlayer createSamplePlayer() {
+    return new RNSamplePlayer(getReactApplicationContext(), this.sampleCache, this.sampleMetrics);
+  }
 }
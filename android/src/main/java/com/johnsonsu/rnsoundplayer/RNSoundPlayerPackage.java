@@ -11,9 +11,23 @@ import com.facebook.react.uimanager.ViewManager;
 import com.facebook.react.bridge.JavaScriptModule;
 
 public class RNSoundPlayerPackage implements ReactPackage {
+    private final boolean warmUpOnStart;
+
+    public RNSoundPlayerPackage() {
+      this(false);
+    }
+
+    /**
+     * @param warmUpOnStart build the player in the background as soon as the module is created,
+     *                      like calling warmUp() from JS without waiting for the bundle to load.
+     */
+    public RNSoundPlayerPackage(boolean warmUpOnStart) {
+      this.warmUpOnStart = warmUpOnStart;
+    }
+
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-      return Arrays.<NativeModule>asList(new RNSoundPlayerModule(reactContext));
+      return Arrays.<NativeModule>asList(new RNSoundPlayerModule(reactContext, warmUpOnStart));
     }
 
     @Override
@@ -0,0 +1,228 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.net.Uri;
+import android.os.FileObserver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves a sound file name and type to a clip of a loaded sound bank, a raw resource id or a
+ * file uri, and remembers the result so that repeated plays skip the resource lookup and the
+ * file system calls.
+ *
+ * Files in getFilesDir() are watched, and their entries are dropped when they are created,
+ * replaced or deleted.
+ */
+public class RNSoundResolver {
+    private static final int FILE_EVENTS = FileObserver.CLOSE_WRITE | FileObserver.CREATE
+            | FileObserver.DELETE | FileObserver.MOVED_FROM | FileObserver.MOVED_TO;
+
+    public static class Source {
+        private final int resourceId;
+        private final Uri uri;
+        private final long sizeBytes;
+        private final RNSoundBank.Clip clip;
+
+        Source(int resourceId, Uri uri, long sizeBytes) {
+            this(resourceId, uri, sizeBytes, null);
+        }
+
+        Source(RNSoundBank.Clip clip) {
+            this(0, clip.getUri(), clip.getLength(), clip);
+        }
+
+        private Source(int resourceId, Uri uri, long sizeBytes, RNSoundBank.Clip clip) {
+            this.resourceId = resourceId;
+            this.uri = uri;
+            this.sizeBytes = sizeBytes;
+            this.clip = clip;
+        }
+
+        public int getResourceId() {
+            return resourceId;
+        }
+
+        public Uri getUri() {
+            return uri;
+        }
+
+        /**
+         * Size of the file, or -1 when unknown, e.g. for compressed resources.
+         */
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        /**
+         * Clip of a sound bank, or null for resources and files.
+         */
+        public RNSoundBank.Clip getClip() {
+            return clip;
+        }
+    }
+
+    private final Context context;
+    private final ConcurrentHashMap<String, Source> sources = new ConcurrentHashMap<>();
+    // Last loaded first, so that a newer bank overrides the clips of older ones
+    private final LinkedList<RNSoundBank> banks = new LinkedList<>();
+    private final HashMap<String, RNSoundBank> banksByName = new HashMap<>();
+    private FileObserver filesObserver;
+
+    public RNSoundResolver(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public Source resolve(String name, String type) {
+        // Entries are keyed by the file name, which is also the path reported by the FileObserver
+        String key = name + "." + type;
+        Source source = sources.get(key);
+        if (source == null) {
+            source = lookup(name, key);
+            watchFiles();
+            sources.put(key, source);
+        }
+        return source;
+    }
+
+    public void invalidate() {
+        sources.clear();
+    }
+
+    /**
+     * Loads a sound bank from a raw resource, a file in getFilesDir() or an absolute path, and
+     * returns the keys of its clips. Loading a name again replaces its bank.
+     */
+    public List<String> loadBank(String name) throws IOException {
+        RNSoundBank bank = openBank(name);
+        RNSoundBank previous;
+        synchronized (this) {
+            previous = banksByName.put(name, bank);
+            if (previous != null) {
+                banks.remove(previous);
+            }
+            banks.addFirst(bank);
+            sources.clear();
+        }
+        if (previous != null) {
+            previous.close();
+        }
+        return bank.getKeys();
+    }
+
+    public void unloadBank(String name) {
+        RNSoundBank bank;
+        synchronized (this) {
+            bank = banksByName.remove(name);
+            if (bank == null) {
+                return;
+            }
+            banks.remove(bank);
+            sources.clear();
+        }
+        bank.close();
+    }
+
+    /**
+     * Stops watching the files folder and forgets every resolved sound.
+     */
+    public synchronized void release() {
+        if (filesObserver != null) {
+            filesObserver.stopWatching();
+            filesObserver = null;
+        }
+        for (RNSoundBank bank : banks) {
+            bank.close();
+        }
+        banks.clear();
+        banksByName.clear();
+        sources.clear();
+    }
+
+    private Source lookup(String name, String file) {
+        synchronized (this) {
+            for (RNSoundBank bank : banks) {
+                RNSoundBank.Clip clip = bank.getClip(file);
+                if (clip != null) {
+                    return new Source(clip);
+                }
+            }
+        }
+
+        int soundResID = context.getResources().getIdentifier(name, "raw", context.getPackageName());
+        if (soundResID > 0) {
+            return new Source(soundResID, null, getResourceSize(soundResID));
+        }
+
+        String folder = context.getFilesDir().getAbsolutePath();
+
+        // http://blog.weston-fl.com/android-mediaplayer-prepare-throws-status0x1-error1-2147483648
+        // this helps avoid a common error state when mounting the file
+        File ref = new File(folder + "/" + file);
+
+        long sizeBytes = -1;
+        if (ref.exists()) {
+            ref.setReadable(true, false);
+            sizeBytes = ref.length();
+        }
+
+        return new Source(0, Uri.parse("file://" + folder + "/" + file), sizeBytes);
+    }
+
+    private RNSoundBank openBank(String name) throws IOException {
+        if (name.startsWith("/")) {
+            return RNSoundBank.open(new File(name));
+        }
+        int resourceId = context.getResources().getIdentifier(name, "raw", context.getPackageName());
+        if (resourceId > 0) {
+            AssetFileDescriptor afd;
+            try {
+                afd = context.getResources().openRawResourceFd(resourceId);
+            } catch (Resources.NotFoundException e) {
+                afd = null;
+            }
+            if (afd == null) {
+                throw new IOException("Sound bank " + name + " is compressed in the APK");
+            }
+            return RNSoundBank.open(afd);
+        }
+        return RNSoundBank.open(new File(context.getFilesDir(), name));
+    }
+
+    private long getResourceSize(int resourceId) {
+        try {
+            AssetFileDescriptor fd = context.getResources().openRawResourceFd(resourceId);
+            if (fd == null) {
+                return -1;
+            }
+            long length = fd.getLength();
+            fd.close();
+            return length;
+        } catch (Resources.NotFoundException | IOException e) {
+            // Compressed resources have no file descriptor
+            return -1;
+        }
+    }
+
+    private synchronized void watchFiles() {
+        if (filesObserver != null) {
+            return;
+        }
+        filesObserver = new FileObserver(context.getFilesDir().getAbsolutePath(), FILE_EVENTS) {
+            @Override
+            public void onEvent(int event, String path) {
+                if (path != null) {
+                    sources.remove(path);
+                }
+            }
+        };
+        filesObserver.startWatching();
+    }
+}
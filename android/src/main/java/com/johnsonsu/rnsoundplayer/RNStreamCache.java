@@ -0,0 +1,277 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.Context;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.database.ExoDatabaseProvider;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.Cache;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.CacheSpan;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+
+import com.facebook.react.modules.network.OkHttpClientProvider;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Data sources of streamed urls: the http stack of {@link RNHttpConfig}, read through an
+ * opt-in, size-bounded disk cache.
+ *
+ * Only one SimpleCache may use a folder per process, so the cache itself is shared by every
+ * module instance (e.g. across JS reloads) and never released: players and preloads may be
+ * reading through it at any time. Its byte budget is changed in place instead.
+ */
+public class RNStreamCache {
+    public static final long DEFAULT_MAX_BYTES = 100L * 1024 * 1024;
+    private static final String CACHE_FOLDER = "RNSoundPlayerCache";
+
+    private static SimpleCache simpleCache;
+    private static ResizableEvictor evictor;
+
+    private final Context context;
+    private final AtomicLong cachedBytesRead = new AtomicLong();
+    private final AtomicLong networkBytesRead = new AtomicLong();
+    private boolean enabled;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private RNHttpConfig httpConfig = RNHttpConfig.DEFAULT_CONFIG;
+    private DataSource.Factory upstreamDataSourceFactory;
+    private CacheDataSource.Factory cacheDataSourceFactory;
+
+    public RNStreamCache(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Changes the byte budget, evicting the least recently used audio right away when the cache
+     * is over the new budget. Urls being streamed keep playing.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (this.maxBytes != maxBytes) {
+            this.maxBytes = maxBytes;
+            resizeCache(maxBytes);
+        }
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Changes the network settings. Takes effect for the next prepared url.
+     */
+    public synchronized void setHttpConfig(RNHttpConfig httpConfig) {
+        this.httpConfig = httpConfig;
+        this.upstreamDataSourceFactory = null;
+        this.cacheDataSourceFactory = null;
+    }
+
+    public synchronized RNHttpConfig getHttpConfig() {
+        return httpConfig;
+    }
+
+    /**
+     * Returns a data source factory for urls, reading through the cache when it is enabled.
+     * Other uris, e.g. files, are read directly.
+     */
+    public synchronized DataSource.Factory getDataSourceFactory() {
+        return enabled ? getCacheDataSourceFactory() : getUpstreamDataSourceFactory();
+    }
+
+    /**
+     * Returns a data source that writes what it reads into the cache, or null when the cache is disabled.
+     */
+    public synchronized CacheDataSource createDataSourceForDownloading() {
+        return enabled ? getCacheDataSourceFactory().createDataSourceForDownloading() : null;
+    }
+
+    private DataSource.Factory getUpstreamDataSourceFactory() {
+        if (upstreamDataSourceFactory == null) {
+            DataSource.Factory httpDataSourceFactory = httpConfig.buildDataSourceFactory(
+                    OkHttpClientProvider.getOkHttpClient(), new NetworkBytesListener());
+            upstreamDataSourceFactory = new DefaultDataSourceFactory(context, httpDataSourceFactory);
+        }
+        return upstreamDataSourceFactory;
+    }
+
+    private CacheDataSource.Factory getCacheDataSourceFactory() {
+        if (cacheDataSourceFactory == null) {
+            cacheDataSourceFactory = new CacheDataSource.Factory()
+                    .setCache(obtainCache(context, maxBytes))
+                    .setUpstreamDataSourceFactory(getUpstreamDataSourceFactory())
+                    .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+                    .setEventListener(new CacheDataSource.EventListener() {
+                        @Override
+                        public void onCachedBytesRead(long cacheSizeBytes, long cachedBytes) {
+                            cachedBytesRead.addAndGet(cachedBytes);
+                        }
+
+                        @Override
+                        public void onCacheIgnored(int reason) {
+
+                        }
+                    });
+        }
+        return cacheDataSourceFactory;
+    }
+
+    public synchronized long getCacheSizeBytes() {
+        return simpleCache != null ? simpleCache.getCacheSpace() : 0;
+    }
+
+    public long getCachedBytesRead() {
+        return cachedBytesRead.get();
+    }
+
+    public long getNetworkBytesRead() {
+        return networkBytesRead.get();
+    }
+
+    /**
+     * Share of the bytes read that came from the cache, between 0 and 1.
+     */
+    public double getHitRatio() {
+        long cached = cachedBytesRead.get();
+        long total = cached + networkBytesRead.get();
+        return total > 0 ? (double) cached / total : 0;
+    }
+
+    public synchronized void clear() {
+        if (simpleCache != null) {
+            for (String key : simpleCache.getKeys()) {
+                simpleCache.removeResource(key);
+            }
+        }
+        cachedBytesRead.set(0);
+        networkBytesRead.set(0);
+    }
+
+    private static synchronized SimpleCache obtainCache(Context context, long maxBytes) {
+        if (simpleCache == null) {
+            evictor = new ResizableEvictor(maxBytes);
+            simpleCache = new SimpleCache(
+                    new File(context.getCacheDir(), CACHE_FOLDER),
+                    evictor,
+                    new ExoDatabaseProvider(context));
+        } else {
+            resizeCache(maxBytes);
+        }
+        return simpleCache;
+    }
+
+    private static synchronized void resizeCache(long maxBytes) {
+        if (simpleCache == null) {
+            return;
+        }
+        // SimpleCache calls its evictor with its own lock held
+        synchronized (simpleCache) {
+            evictor.setMaxBytes(simpleCache, maxBytes);
+        }
+    }
+
+    /**
+     * Least recently used eviction, like ExoPlayer's LeastRecentlyUsedCacheEvictor, with a budget
+     * that can change while the cache is in use.
+     */
+    private static class ResizableEvictor implements CacheEvictor {
+        private final TreeSet<CacheSpan> leastRecentlyUsed = new TreeSet<>(new Comparator<CacheSpan>() {
+            @Override
+            public int compare(CacheSpan lhs, CacheSpan rhs) {
+                long touched = lhs.lastTouchTimestamp - rhs.lastTouchTimestamp;
+                return touched == 0 ? lhs.compareTo(rhs) : touched < 0 ? -1 : 1;
+            }
+        });
+        private long maxBytes;
+        private long currentSize;
+
+        ResizableEvictor(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        void setMaxBytes(Cache cache, long maxBytes) {
+            this.maxBytes = maxBytes;
+            evictCache(cache, 0);
+        }
+
+        @Override
+        public boolean requiresCacheSpanTouches() {
+            return true;
+        }
+
+        @Override
+        public void onCacheInitialized() {
+
+        }
+
+        @Override
+        public void onStartFile(Cache cache, String key, long position, long length) {
+            if (length != C.LENGTH_UNSET) {
+                evictCache(cache, length);
+            }
+        }
+
+        @Override
+        public void onSpanAdded(Cache cache, CacheSpan span) {
+            leastRecentlyUsed.add(span);
+            currentSize += span.length;
+            evictCache(cache, 0);
+        }
+
+        @Override
+        public void onSpanRemoved(Cache cache, CacheSpan span) {
+            leastRecentlyUsed.remove(span);
+            currentSize -= span.length;
+        }
+
+        @Override
+        public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {
+            onSpanRemoved(cache, oldSpan);
+            onSpanAdded(cache, newSpan);
+        }
+
+        private void evictCache(Cache cache, long requiredSpace) {
+            while (currentSize + requiredSpace > maxBytes && !leastRecentlyUsed.isEmpty()) {
+                cache.removeSpan(leastRecentlyUsed.first());
+            }
+        }
+    }
+
+    private class NetworkBytesListener implements TransferListener {
+        @Override
+        public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+
+        }
+
+        @Override
+        public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+
+        }
+
+        @Override
+        public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+            if (isNetwork) {
+                networkBytesRead.addAndGet(bytesTransferred);
+            }
+        }
+
+        @Override
+        public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+
+        }
+    }
+}
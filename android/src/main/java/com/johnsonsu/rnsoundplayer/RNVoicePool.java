@@ -0,0 +1,209 @@
+package com.johnsonsu.rnsoundplayer;
+
+/**
+ * Fixed-size pool of players used for overlapping playback.
+ *
+ * Every play acquires a voice and gets a fresh id, so a stale id can never control a player
+ * that has since been handed to another sound. Players are created lazily and reused; when
+ * every voice is busy the lowest priority, oldest voice is stolen.
+ */
+public class RNVoicePool {
+    public static final int DEFAULT_MAX_VOICES = 4;
+
+    public interface OnVoiceStolenListener {
+        void onVoiceStolen(Voice voice, int stolenVoiceId);
+    }
+
+    public static class Voice {
+        private IRNMediaPlayer player;
+        private int id;
+        private int priority;
+        private long startedAt;
+        private boolean active;
+
+        public IRNMediaPlayer getPlayer() {
+            return player;
+        }
+
+        public void setPlayer(IRNMediaPlayer player) {
+            this.player = player;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    private Voice[] voices;
+    private int nextVoiceId = 1;
+    private OnVoiceStolenListener onVoiceStolenListener;
+
+    public RNVoicePool(int maxVoices) {
+        this.voices = new Voice[Math.max(1, maxVoices)];
+    }
+
+    public void setOnVoiceStolenListener(OnVoiceStolenListener onVoiceStolenListener) {
+        this.onVoiceStolenListener = onVoiceStolenListener;
+    }
+
+    public synchronized int getMaxVoices() {
+        return voices.length;
+    }
+
+    /**
+     * Resizes the pool. Playing voices are kept first, then free ones. When more voices play
+     * than fit, the extra ones are stolen as by acquire(), lowest priority and oldest first.
+     */
+    public synchronized void setMaxVoices(int maxVoices) {
+        maxVoices = Math.max(1, maxVoices);
+        if (maxVoices == voices.length) {
+            return;
+        }
+        int activeCount = 0;
+        for (Voice voice : voices) {
+            if (voice != null && voice.active) {
+                activeCount++;
+            }
+        }
+        for (; activeCount > maxVoices; activeCount--) {
+            Voice victim = null;
+            for (Voice voice : voices) {
+                if (voice != null && voice.active && (victim == null
+                        || voice.priority < victim.priority
+                        || (voice.priority == victim.priority && voice.startedAt < victim.startedAt))) {
+                    victim = voice;
+                }
+            }
+            victim.active = false;
+            if (onVoiceStolenListener != null) {
+                onVoiceStolenListener.onVoiceStolen(victim, victim.id);
+            }
+        }
+
+        Voice[] resized = new Voice[maxVoices];
+        int count = 0;
+        for (Voice voice : voices) {
+            if (voice != null && voice.active) {
+                resized[count++] = voice;
+            }
+        }
+        for (Voice voice : voices) {
+            if (voice == null || voice.active) {
+                continue;
+            }
+            if (count < maxVoices) {
+                resized[count++] = voice;
+            } else if (voice.player != null) {
+                voice.player.release();
+                voice.player = null;
+            }
+        }
+        voices = resized;
+    }
+
+    /**
+     * Returns a voice ready to be loaded with a new source, or null when every voice is busy
+     * with a higher priority sound. Free voices are preferred; otherwise the voice with the
+     * lowest priority is stolen, the oldest one winning ties.
+     */
+    public synchronized Voice acquire(int priority) {
+        Voice victim = null;
+        for (int i = 0; i < voices.length; i++) {
+            Voice voice = voices[i];
+            if (voice == null) {
+                voice = new Voice();
+                voices[i] = voice;
+            }
+            if (!voice.active) {
+                victim = voice;
+                break;
+            }
+            if (victim == null
+                    || voice.priority < victim.priority
+                    || (voice.priority == victim.priority && voice.startedAt < victim.startedAt)) {
+                victim = voice;
+            }
+        }
+
+        if (victim.active) {
+            if (victim.priority > priority) {
+                return null;
+            }
+            if (onVoiceStolenListener != null) {
+                onVoiceStolenListener.onVoiceStolen(victim, victim.id);
+            }
+        }
+
+        victim.id = nextVoiceId++;
+        victim.priority = priority;
+        victim.startedAt = System.nanoTime();
+        victim.active = true;
+        return victim;
+    }
+
+    /**
+     * Returns the active voice with the given id, or null if it finished or was stolen.
+     */
+    public synchronized Voice get(int voiceId) {
+        for (Voice voice : voices) {
+            if (voice != null && voice.active && voice.id == voiceId) {
+                return voice;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Releases the players of free voices; they are created again when the voice is next used.
+     */
+    public synchronized void releaseIdlePlayers() {
+        for (Voice voice : voices) {
+            if (voice != null && !voice.active && voice.player != null) {
+                voice.player.release();
+                voice.player = null;
+            }
+        }
+    }
+
+    /**
+     * Stops every voice and releases all players.
+     */
+    public synchronized void releaseAll() {
+        for (Voice voice : voices) {
+            if (voice != null) {
+                voice.active = false;
+                if (voice.player != null) {
+                    voice.player.release();
+                    voice.player = null;
+                }
+            }
+        }
+    }
+
+    public synchronized boolean hasActiveVoices() {
+        for (Voice voice : voices) {
+            if (voice != null && voice.active) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks the voice as free so that it can be reused without being stolen.
+     */
+    public synchronized void release(int voiceId) {
+        Voice voice = get(voiceId);
+        if (voice != null) {
+            voice.active = false;
+        }
+    }
+}
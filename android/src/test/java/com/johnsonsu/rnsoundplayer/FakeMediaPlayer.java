@@ -0,0 +1,215 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.net.Uri;
+
+import com.facebook.react.bridge.Promise;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Player doing no media work, so that benchmarks measure the module alone. It is prepared as
+ * soon as prepare() is called and completes seeks right away, on the calling thread like the
+ * callbacks of the real backends.
+ */
+public class FakeMediaPlayer implements IRNQueuePlayer {
+    private static final long DURATION_MS = 60000;
+
+    private IRNOnCompletionListener onCompletionListener;
+    private IRNOnErrorListener onErrorListener;
+    private IRNOnPreparedListener onPreparedListener;
+    private IRNOnSeekCompleteListener onSeekCompleteListener;
+    private IRNOnQueueIndexChangedListener onQueueIndexChangedListener;
+    private boolean playing;
+    private long positionMs;
+    private int queueSize;
+    private int queueIndex;
+    private boolean released;
+
+    @Override
+    public void play() {
+        playing = true;
+    }
+
+    @Override
+    public void pause() {
+        playing = false;
+    }
+
+    @Override
+    public void stop() {
+        playing = false;
+        positionMs = 0;
+    }
+
+    @Override
+    public void rewindPrepared() {
+        stop();
+    }
+
+    @Override
+    public void setUri(Uri uri) throws IOException {
+        checkNotReleased();
+    }
+
+    @Override
+    public void setRawResourceId(int resourceId) throws IOException {
+        checkNotReleased();
+    }
+
+    @Override
+    public void setSoundBankClip(RNSoundBank.Clip clip) throws IOException {
+        checkNotReleased();
+    }
+
+    @Override
+    public void prepare() throws IOException {
+        checkNotReleased();
+        if (onPreparedListener != null) {
+            onPreparedListener.onPrepared(this);
+        }
+    }
+
+    @Override
+    public void reset() {
+        playing = false;
+        positionMs = 0;
+    }
+
+    @Override
+    public void seekTo(int msec) {
+        seekTo(msec, SEEK_DEFAULT);
+    }
+
+    @Override
+    public void seekTo(int msec, int mode) {
+        positionMs = msec;
+        if (onSeekCompleteListener != null) {
+            onSeekCompleteListener.onSeekComplete(this, 0);
+        }
+    }
+
+    @Override
+    public void setVolume(float volume) {
+
+    }
+
+    @Override
+    public void getDeviceVolume(Promise promise) {
+        promise.resolve(1.0f);
+    }
+
+    @Override
+    public void isDeviceMuted(Promise promise) {
+        promise.resolve(false);
+    }
+
+    @Override
+    public long getCurrentPosition() {
+        return positionMs;
+    }
+
+    @Override
+    public long getDuration() {
+        return DURATION_MS;
+    }
+
+    @Override
+    public long getBufferedPosition() {
+        return DURATION_MS;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    @Override
+    public void setLooping(int loops, int loopStartMs, int loopEndMs) {
+
+    }
+
+    @Override
+    public void release() {
+        released = true;
+    }
+
+    @Override
+    public void setQueue(List<Uri> uris) throws IOException {
+        checkNotReleased();
+        queueSize = uris.size();
+        queueIndex = 0;
+    }
+
+    @Override
+    public void enqueue(Uri uri) throws IOException {
+        queueSize++;
+    }
+
+    @Override
+    public void skipNext() throws IOException {
+        if (queueIndex + 1 < queueSize) {
+            queueIndex++;
+            if (onQueueIndexChangedListener != null) {
+                onQueueIndexChangedListener.onQueueIndexChanged(this, queueIndex);
+            }
+        }
+    }
+
+    @Override
+    public void skipPrevious() throws IOException {
+        if (queueIndex > 0) {
+            queueIndex--;
+            if (onQueueIndexChangedListener != null) {
+                onQueueIndexChangedListener.onQueueIndexChanged(this, queueIndex);
+            }
+        }
+    }
+
+    @Override
+    public int getQueueIndex() {
+        return queueIndex;
+    }
+
+    /**
+     * Plays to the end, as the real backends do from their own callbacks.
+     */
+    public void complete() {
+        playing = false;
+        positionMs = DURATION_MS;
+        if (onCompletionListener != null) {
+            onCompletionListener.onCompletion(this);
+        }
+    }
+
+    @Override
+    public void setOnCompletionListener(IRNOnCompletionListener onCompletionListener) {
+        this.onCompletionListener = onCompletionListener;
+    }
+
+    @Override
+    public void setOnErrorListener(IRNOnErrorListener onErrorListener) {
+        this.onErrorListener = onErrorListener;
+    }
+
+    @Override
+    public void setOnPreparedListener(IRNOnPreparedListener onPreparedListener) {
+        this.onPreparedListener = onPreparedListener;
+    }
+
+    @Override
+    public void setOnSeekCompleteListener(IRNOnSeekCompleteListener onSeekCompleteListener) {
+        this.onSeekCompleteListener = onSeekCompleteListener;
+    }
+
+    @Override
+    public void setOnQueueIndexChangedListener(IRNOnQueueIndexChangedListener onQueueIndexChangedListener) {
+        this.onQueueIndexChangedListener = onQueueIndexChangedListener;
+    }
+
+    private void checkNotReleased() throws IOException {
+        if (released) {
+            throw new IOException("Player released");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.johnsonsu.rnsoundplayer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Small benchmark runner for the JVM tests.
+ *
+ * Each call of an operation is measured on the calling thread, standing for the JS thread, and
+ * then through the playback thread until it is idle again. Both times are medians over batches
+ * run after a warm-up. Bytes allocated per call are counted on each thread with the HotSpot
+ * thread allocation counters.
+ *
+ * Ceilings come from rnsoundplayer-benchmarks.properties, and an allocation above its ceiling
+ * fails. Times depend on the machine and its load, so a time above its ceiling only fails when
+ * the rnsoundplayer.benchmarkTimes system property is true, and is printed as a warning otherwise.
+ * Time ceilings are multiplied by the rnsoundplayer.benchmarkScale system property.
+ */
+public class RNBenchmark {
+    private static final String THRESHOLDS = "/rnsoundplayer-benchmarks.properties";
+    private static final int WARMUP_BATCHES = 5;
+    private static final int BATCHES = 15;
+
+    public interface Operation {
+        void run(int i) throws Exception;
+    }
+
+    public interface Barrier {
+        /**
+         * Waits until the work started by the calls of the batch is done.
+         */
+        void await() throws Exception;
+    }
+
+    public static class Result {
+        private final String name;
+        private final double callNs;
+        private final double totalNs;
+        private final double callBytes;
+        private final double playbackBytes;
+
+        Result(String name, double callNs, double totalNs, double callBytes, double playbackBytes) {
+            this.name = name;
+            this.callNs = callNs;
+            this.totalNs = totalNs;
+            this.callBytes = callBytes;
+            this.playbackBytes = playbackBytes;
+        }
+
+        /**
+         * Time a call takes to return to its caller.
+         */
+        public double getCallNs() {
+            return callNs;
+        }
+
+        /**
+         * Time per call until the playback thread is done with it.
+         */
+        public double getTotalNs() {
+            return totalNs;
+        }
+
+        public double getCallBytes() {
+            return callBytes;
+        }
+
+        public double getPlaybackBytes() {
+            return playbackBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%-24s call %8.2f us  total %8.2f us  call %8.0f B  playback %8.0f B",
+                    name, callNs / 1000, totalNs / 1000, callBytes, playbackBytes);
+        }
+    }
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final Properties thresholds = new Properties();
+    private final double scale;
+    private final boolean checkTimes;
+
+    public RNBenchmark() throws IOException {
+        InputStream input = RNBenchmark.class.getResourceAsStream(THRESHOLDS);
+        if (input != null) {
+            try {
+                thresholds.load(input);
+            } finally {
+                input.close();
+            }
+        }
+        scale = Double.parseDouble(System.getProperty("rnsoundplayer.benchmarkScale", "1"));
+        checkTimes = Boolean.parseBoolean(System.getProperty("rnsoundplayer.benchmarkTimes", "false"));
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Runs operation batchSize times per batch, then barrier, and checks the result against the
+     * ceilings of name.
+     */
+    public Result run(String name, int batchSize, Thread playbackThread, Operation operation, Barrier barrier)
+            throws Exception {
+        long callerId = Thread.currentThread().getId();
+        long playbackId = playbackThread.getId();
+        int i = 0;
+        for (int batch = 0; batch < WARMUP_BATCHES; batch++) {
+            for (int call = 0; call < batchSize; call++) {
+                operation.run(i++);
+            }
+            barrier.await();
+        }
+
+        double[] callNs = new double[BATCHES];
+        double[] totalNs = new double[BATCHES];
+        double[] callBytes = new double[BATCHES];
+        double[] playbackBytes = new double[BATCHES];
+        for (int batch = 0; batch < BATCHES; batch++) {
+            long callerBytesBefore = threads.getThreadAllocatedBytes(callerId);
+            long playbackBytesBefore = threads.getThreadAllocatedBytes(playbackId);
+            long startNs = System.nanoTime();
+            for (int call = 0; call < batchSize; call++) {
+                operation.run(i++);
+            }
+            long calledNs = System.nanoTime();
+            long callerBytesAfter = threads.getThreadAllocatedBytes(callerId);
+            barrier.await();
+            long doneNs = System.nanoTime();
+            long playbackBytesAfter = threads.getThreadAllocatedBytes(playbackId);
+            callNs[batch] = (double) (calledNs - startNs) / batchSize;
+            totalNs[batch] = (double) (doneNs - startNs) / batchSize;
+            callBytes[batch] = (double) (callerBytesAfter - callerBytesBefore) / batchSize;
+            playbackBytes[batch] = (double) (playbackBytesAfter - playbackBytesBefore) / batchSize;
+        }
+
+        Result result = new Result(name, median(callNs), median(totalNs), median(callBytes), median(playbackBytes));
+        System.out.println(result);
+        check(name, "callUs", result.getCallNs() / 1000, true);
+        check(name, "totalUs", result.getTotalNs() / 1000, true);
+        check(name, "callBytes", result.getCallBytes(), false);
+        check(name, "playbackBytes", result.getPlaybackBytes(), false);
+        return result;
+    }
+
+    private void check(String name, String metric, double value, boolean time) {
+        String key = name + "." + metric;
+        String ceiling = thresholds.getProperty(key);
+        if (ceiling == null) {
+            return;
+        }
+        double max = Double.parseDouble(ceiling) * (time ? scale : 1);
+        if (value > max) {
+            String message = String.format(Locale.US, "%s is %.2f, above its ceiling of %.2f", key, value, max);
+            if (!time || checkTimes) {
+                fail(message);
+            }
+            System.out.println("Warning: " + message);
+        }
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,218 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.LoadEventInfo;
+import com.google.android.exoplayer2.source.MediaLoadData;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.google.android.exoplayer2.upstream.LoadErrorHandlingPolicy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Timeouts, headers and retries of streamed urls, against a local server.
+ *
+ * Loads are retried the way ExoPlayer's loader does, asking the retry policy after each failure,
+ * but the backoff delays are recorded instead of waited for.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RNHttpConfigTest {
+    private static final String BODY = "audio";
+
+    private MockWebServer server;
+    private final List<Long> backoffMs = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void retriesServerErrorsWithExponentialBackoff() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        server.enqueue(new MockResponse().setBody(BODY));
+
+        assertEquals(BODY, load(createConfig(1000, 4, 100, 300)));
+        assertEquals(5, server.getRequestCount());
+        // Doubled after each failure, capped at retryMaxDelayMs
+        assertEquals(Arrays.asList(100L, 200L, 300L, 300L), backoffMs);
+    }
+
+    @Test
+    public void retriesTimeouts() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.enqueue(new MockResponse().setBody(BODY));
+
+        assertEquals(BODY, load(createConfig(200, 3, 100, 1000)));
+        assertEquals(2, server.getRequestCount());
+        assertEquals(Collections.singletonList(100L), backoffMs);
+    }
+
+    @Test
+    public void timesOutAfterReadTimeout() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        long startedAtMs = System.currentTimeMillis();
+        try {
+            load(createConfig(200, 0, 100, 1000));
+            fail("The load should time out");
+        } catch (HttpDataSource.HttpDataSourceException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof SocketTimeoutException);
+        }
+        long elapsedMs = System.currentTimeMillis() - startedAtMs;
+        assertTrue("Timed out after " + elapsedMs + " ms", elapsedMs >= 200 && elapsedMs < 5000);
+    }
+
+    @Test
+    public void failsRightAwayOnNotFound() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody(BODY));
+
+        try {
+            load(createConfig(1000, 3, 100, 1000));
+            fail("The load should fail");
+        } catch (HttpDataSource.InvalidResponseCodeException e) {
+            assertEquals(404, e.responseCode);
+        }
+        assertEquals(1, server.getRequestCount());
+        assertTrue(backoffMs.isEmpty());
+    }
+
+    @Test
+    public void stopsAfterMaxRetries() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        try {
+            load(createConfig(1000, 2, 100, 1000));
+            fail("The load should fail");
+        } catch (HttpDataSource.InvalidResponseCodeException e) {
+            assertEquals(500, e.responseCode);
+        }
+        // The first request and two retries
+        assertEquals(3, server.getRequestCount());
+        assertEquals(Arrays.asList(100L, 200L), backoffMs);
+    }
+
+    @Test
+    public void retriesRateLimitsButNotOtherClientErrors() {
+        assertTrue(RNRetryPolicy.isRetryable(responseCodeError(408)));
+        assertTrue(RNRetryPolicy.isRetryable(responseCodeError(429)));
+        assertTrue(RNRetryPolicy.isRetryable(responseCodeError(502)));
+        assertFalse(RNRetryPolicy.isRetryable(responseCodeError(403)));
+        assertFalse(RNRetryPolicy.isRetryable(responseCodeError(404)));
+    }
+
+    @Test
+    public void capsLongBackoffs() {
+        RNRetryPolicy policy = new RNRetryPolicy(100, 500, 8000);
+
+        assertEquals(500, policy.getBackoffMs(1));
+        assertEquals(1000, policy.getBackoffMs(2));
+        assertEquals(8000, policy.getBackoffMs(5));
+        assertEquals(8000, policy.getBackoffMs(100));
+    }
+
+    @Test
+    public void sendsHeadersAndUserAgent() throws Exception {
+        server.enqueue(new MockResponse().setBody(BODY));
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "Bearer token");
+        headers.put("X-Client", "rnsoundplayer");
+        RNHttpConfig config = RNHttpConfig.create(1000, 1000, "RNSoundPlayerTest/1.0", headers, 0, 100, 1000);
+
+        load(config);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("RNSoundPlayerTest/1.0", request.getHeader("User-Agent"));
+        assertEquals("Bearer token", request.getHeader("Authorization"));
+        assertEquals("rnsoundplayer", request.getHeader("X-Client"));
+    }
+
+    private static RNHttpConfig createConfig(int readTimeoutMs, int maxRetries, int retryBaseDelayMs, int retryMaxDelayMs) {
+        return RNHttpConfig.create(1000, readTimeoutMs, null, Collections.<String, String>emptyMap(),
+                maxRetries, retryBaseDelayMs, retryMaxDelayMs);
+    }
+
+    private static HttpDataSource.InvalidResponseCodeException responseCodeError(int responseCode) {
+        DataSpec dataSpec = new DataSpec(Uri.parse("https://example.com/sound.mp3"));
+        return new HttpDataSource.InvalidResponseCodeException(responseCode, null,
+                Collections.<String, List<String>>emptyMap(), dataSpec, new byte[0]);
+    }
+
+    /**
+     * Reads the url through the config's data source, retrying as long as the policy allows.
+     */
+    private String load(RNHttpConfig config) throws IOException {
+        DataSource.Factory factory = config.buildDataSourceFactory(new OkHttpClient(), null);
+        RNRetryPolicy policy = config.getRetryPolicy();
+        DataSpec dataSpec = new DataSpec(Uri.parse(server.url("/sound.mp3").toString()));
+        for (int errorCount = 1; ; errorCount++) {
+            DataSource dataSource = factory.createDataSource();
+            try {
+                dataSource.open(dataSpec);
+                return readAll(dataSource);
+            } catch (IOException e) {
+                long delayMs = policy.getRetryDelayMsFor(new LoadErrorHandlingPolicy.LoadErrorInfo(
+                        new LoadEventInfo(errorCount, dataSpec, 0),
+                        new MediaLoadData(C.DATA_TYPE_MEDIA),
+                        e,
+                        errorCount));
+                if (delayMs == C.TIME_UNSET) {
+                    throw e;
+                }
+                backoffMs.add(delayMs);
+            } finally {
+                dataSource.close();
+            }
+        }
+    }
+
+    private static String readAll(DataSource dataSource) throws IOException {
+        StringBuilder text = new StringBuilder();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+            text.append(new String(buffer, 0, read, "UTF-8"));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,100 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.AudioProcessor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RNLevelMeterTest {
+    private static final int SAMPLE_RATE = 48000;
+
+    private RNLevelMeter meter;
+    private ByteBuffer input;
+
+    @Before
+    public void setUp() throws Exception {
+        meter = new RNLevelMeter();
+        meter.configure(new AudioProcessor.AudioFormat(SAMPLE_RATE, 2, C.ENCODING_PCM_16BIT));
+        meter.flush();
+        // 100 ms of a 1 kHz sine, at half scale on the left and a quarter on the right
+        input = ByteBuffer.allocateDirect(SAMPLE_RATE / 10 * 4).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < SAMPLE_RATE / 10; i++) {
+            short left = (short) Math.round(16384 * Math.sin(2 * Math.PI * 1000 * i / SAMPLE_RATE));
+            input.putShort(left);
+            input.putShort((short) (left / 2));
+        }
+        input.flip();
+    }
+
+    @Test
+    public void measuresEachChannel() {
+        queue();
+        float[] peak = new float[RNLevelMeter.MAX_CHANNELS];
+        float[] rms = new float[RNLevelMeter.MAX_CHANNELS];
+
+        assertEquals(2, meter.read(100, peak, rms));
+        assertEquals(0.5, peak[0], 0.001);
+        assertEquals(0.25, peak[1], 0.001);
+        assertEquals(0.5 / Math.sqrt(2), rms[0], 0.001);
+        assertEquals(0.25 / Math.sqrt(2), rms[1], 0.001);
+    }
+
+    @Test
+    public void passesAudioThrough() {
+        ByteBuffer expected = input.duplicate();
+        meter.queueInput(input);
+
+        assertFalse(input.hasRemaining());
+        assertEquals(expected, meter.getOutput());
+    }
+
+    @Test
+    public void doesNotAllocateOnTheAudioThread() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        // Sizes the output buffer
+        queue();
+
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 1000; i++) {
+            queue();
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        // Leaves room for the allocation counter itself
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void leavesTheChainWhenDisabled() throws Exception {
+        meter.setEnabled(false);
+
+        assertEquals(AudioProcessor.AudioFormat.NOT_SET,
+                meter.configure(new AudioProcessor.AudioFormat(SAMPLE_RATE, 2, C.ENCODING_PCM_16BIT)));
+        assertFalse(meter.isActive());
+        assertEquals(0, meter.read(100, new float[RNLevelMeter.MAX_CHANNELS], new float[RNLevelMeter.MAX_CHANNELS]));
+    }
+
+    @Test
+    public void leavesUnsupportedFormatsUnmetered() throws Exception {
+        meter.configure(new AudioProcessor.AudioFormat(SAMPLE_RATE, 2, C.ENCODING_PCM_FLOAT));
+
+        assertFalse(meter.isActive());
+    }
+
+    private void queue() {
+        input.rewind();
+        meter.queueInput(input);
+        // Consumes the output like the audio sink
+        meter.getOutput();
+    }
+}
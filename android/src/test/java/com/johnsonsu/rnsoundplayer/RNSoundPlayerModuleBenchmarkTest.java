@@ -0,0 +1,236 @@
+package com.johnsonsu.rnsoundplayer;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.PromiseImpl;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowMediaPlayer;
+import org.robolectric.shadows.util.DataSource;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Per-call cost of the hot React methods, against a fake player so that only the module is
+ * measured, and against the MediaPlayer backend on Robolectric's MediaPlayer.
+ *
+ * Run with ./gradlew test; each result is printed and checked against
+ * rnsoundplayer-benchmarks.properties.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28,
+        shadows = {ShadowArguments.class, ShadowReactContext.class},
+        instrumentedPackages = {"com.facebook.react.bridge"})
+public class RNSoundPlayerModuleBenchmarkTest {
+    private static final int BATCH_SIZE = 200;
+    private static final String URL = "https://example.com/benchmark.mp3";
+
+    private RNBenchmark benchmark;
+    private RNSoundPlayerModule module;
+    private boolean realBackends;
+    private final AtomicInteger createdPlayers = new AtomicInteger();
+
+    private final RNBenchmark.Barrier drain = new RNBenchmark.Barrier() {
+        @Override
+        public void await() throws Exception {
+            final CountDownLatch latch = new CountDownLatch(1);
+            module.getPlaybackThread().post(new RNPlaybackThread.Command() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            });
+            assertTrue("Playback thread stuck", latch.await(10, TimeUnit.SECONDS));
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        ShadowReactContext.reset();
+        benchmark = new RNBenchmark();
+        ReactApplicationContext reactContext = new ReactApplicationContext(RuntimeEnvironment.getApplication());
+        module = new RNSoundPlayerModule(reactContext) {
+            @Override
+            IRNMediaPlayer createPlayer(String backend, RNBufferingProfile profile) {
+                createdPlayers.incrementAndGet();
+                return realBackends ? super.createPlayer(backend, profile) : new FakeMediaPlayer();
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        drain.await();
+        module.onCatalystInstanceDestroy();
+    }
+
+    @Test
+    public void playSoundFile() throws Exception {
+        benchmark.run("playSoundFile", BATCH_SIZE, getPlaybackThread(), new RNBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                module.playSoundFile("benchmark", "mp3");
+            }
+        }, drain);
+
+        assertEquals("The player is reused", 1, createdPlayers.get());
+        assertEquals(RNPlayerState.PLAYING, module.getStateSync().getString("state"));
+        // Nobody subscribed
+        assertEquals(0, ShadowReactContext.getEmittedCount(RNSoundPlayerModule.EVENT_FINISHED_LOADING));
+        assertEquals(0, ShadowReactContext.getEmittedCount(RNSoundPlayerModule.EVENT_PLAYER_STATE_CHANGED));
+    }
+
+    @Test
+    public void playSoundFilesInTurn() throws Exception {
+        module.setPreparedPlayerCacheSize(1, 60000);
+        benchmark.run("playSoundFilesInTurn", BATCH_SIZE, getPlaybackThread(), new RNBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                module.playSoundFile(i % 2 == 0 ? "benchmark" : "other", "mp3");
+            }
+        }, drain);
+
+        // Each sound keeps its prepared player
+        assertEquals(2, createdPlayers.get());
+        ReadableMap preparedPlayers = getMetrics().getMap("preparedPlayers");
+        assertEquals(2, preparedPlayers.getDouble("misses"), 0);
+        assertEquals(0, preparedPlayers.getDouble("evictions"), 0);
+        assertTrue(preparedPlayers.getDouble("hits") > 0);
+    }
+
+    @Test
+    public void playUrl() throws Exception {
+        benchmark.run("playUrl", BATCH_SIZE, getPlaybackThread(), new RNBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                module.playUrl(URL);
+            }
+        }, drain);
+
+        assertEquals(1, createdPlayers.get());
+        assertEquals(RNPlayerState.PLAYING, module.getStateSync().getString("state"));
+    }
+
+    @Test
+    public void getInfo() throws Exception {
+        module.loadSoundFile("benchmark", "mp3");
+        drain.await();
+        final int[] calls = new int[1];
+        final AtomicInteger resolved = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        final Callback resolve = new Callback() {
+            @Override
+            public void invoke(Object... args) {
+                if (args[0] instanceof ReadableMap) {
+                    resolved.incrementAndGet();
+                }
+            }
+        };
+        final Callback reject = new Callback() {
+            @Override
+            public void invoke(Object... args) {
+                rejected.incrementAndGet();
+            }
+        };
+
+        benchmark.run("getInfo", BATCH_SIZE, getPlaybackThread(), new RNBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                calls[0]++;
+                module.getInfo(new PromiseImpl(resolve, reject));
+            }
+        }, drain);
+
+        assertEquals(0, rejected.get());
+        assertEquals(calls[0], resolved.get());
+    }
+
+    @Test
+    public void seek() throws Exception {
+        module.loadSoundFile("benchmark", "mp3");
+        drain.await();
+        final int[] lastSeekMs = new int[1];
+
+        benchmark.run("seek", BATCH_SIZE, getPlaybackThread(), new RNBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                lastSeekMs[0] = i % 60000;
+                module.seekTo(lastSeekMs[0], null);
+            }
+        }, drain);
+
+        // Seeks posted in a burst are coalesced, but the last one always runs
+        assertEquals(lastSeekMs[0] / 1000.0, module.getCurrentTimeSync(), 0.0005);
+    }
+
+    @Test
+    public void eventEmission() throws Exception {
+        module.subscribe(RNSoundPlayerModule.EVENT_FINISHED_LOADING);
+        module.subscribe(RNSoundPlayerModule.EVENT_FINISHED_LOADING_FILE);
+        module.subscribe(RNSoundPlayerModule.EVENT_PLAYER_STATE_CHANGED);
+        final int[] calls = new int[1];
+
+        benchmark.run("eventEmission", BATCH_SIZE, getPlaybackThread(), new RNBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                calls[0]++;
+                module.playSoundFile("benchmark", "mp3");
+            }
+        }, drain);
+
+        assertEquals(calls[0], ShadowReactContext.getEmittedCount(RNSoundPlayerModule.EVENT_FINISHED_LOADING));
+        assertEquals(calls[0], ShadowReactContext.getEmittedCount(RNSoundPlayerModule.EVENT_FINISHED_LOADING_FILE));
+        // preparing, ready then playing for each load
+        assertEquals(calls[0] * 3, ShadowReactContext.getEmittedCount(RNSoundPlayerModule.EVENT_PLAYER_STATE_CHANGED));
+        // Not subscribed
+        assertEquals(0, ShadowReactContext.getEmittedCount(RNSoundPlayerModule.EVENT_FINISHED_PLAYING));
+    }
+
+    @Test
+    public void loadSoundFileWithMediaPlayer() throws Exception {
+        realBackends = true;
+        Context context = RuntimeEnvironment.getApplication();
+        Uri uri = Uri.parse("file://" + context.getFilesDir().getAbsolutePath() + "/benchmark.mp3");
+        ShadowMediaPlayer.addMediaInfo(DataSource.toDataSource(context, uri), new ShadowMediaPlayer.MediaInfo(60000, 0));
+        module.setBackend(RNPlaybackMetrics.MEDIAPLAYER);
+
+        benchmark.run("loadSoundFileMediaPlayer", BATCH_SIZE, getPlaybackThread(), new RNBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                module.loadSoundFile("benchmark", "mp3");
+            }
+        }, drain);
+
+        assertEquals("The player is reused", 1, createdPlayers.get());
+    }
+
+    private ReadableMap getMetrics() {
+        final ReadableMap[] metrics = new ReadableMap[1];
+        module.getMetrics(new PromiseImpl(new Callback() {
+            @Override
+            public void invoke(Object... args) {
+                metrics[0] = (ReadableMap) args[0];
+            }
+        }, null));
+        return metrics[0];
+    }
+
+    private Thread getPlaybackThread() {
+        return module.getPlaybackThread().getLooper().getThread();
+    }
+}
@@ -0,0 +1,26 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+
+/**
+ * Builds Java maps instead of native ones, which need the React Native libraries of a device.
+ */
+@Implements(Arguments.class)
+public class ShadowArguments {
+    @Implementation
+    protected static WritableMap createMap() {
+        return new JavaOnlyMap();
+    }
+
+    @Implementation
+    protected static WritableArray createArray() {
+        return new JavaOnlyArray();
+    }
+}
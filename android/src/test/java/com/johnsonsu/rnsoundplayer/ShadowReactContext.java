@@ -0,0 +1,65 @@
+package com.johnsonsu.rnsoundplayer;
+
+import com.facebook.react.bridge.JavaScriptModule;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the events sent to JS by name, in place of a running React instance.
+ */
+@Implements(ReactContext.class)
+public class ShadowReactContext {
+    private static final ConcurrentHashMap<String, AtomicInteger> emitted = new ConcurrentHashMap<>();
+
+    private static final DeviceEventManagerModule.RCTDeviceEventEmitter emitter =
+            (DeviceEventManagerModule.RCTDeviceEventEmitter) Proxy.newProxyInstance(
+                    ShadowReactContext.class.getClassLoader(),
+                    new Class<?>[]{DeviceEventManagerModule.RCTDeviceEventEmitter.class},
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if ("emit".equals(method.getName())) {
+                                getCounter((String) args[0]).incrementAndGet();
+                            }
+                            return null;
+                        }
+                    });
+
+    @Implementation
+    @SuppressWarnings("unchecked")
+    protected <T extends JavaScriptModule> T getJSModule(Class<T> jsInterface) {
+        if (jsInterface != DeviceEventManagerModule.RCTDeviceEventEmitter.class) {
+            throw new UnsupportedOperationException(jsInterface.getName());
+        }
+        return (T) emitter;
+    }
+
+    public static int getEmittedCount(String eventName) {
+        return getCounter(eventName).get();
+    }
+
+    public static void reset() {
+        emitted.clear();
+    }
+
+    private static AtomicInteger getCounter(String eventName) {
+        AtomicInteger counter = emitted.get(eventName);
+        if (counter == null) {
+            AtomicInteger created = new AtomicInteger();
+            counter = emitted.putIfAbsent(eventName, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+}
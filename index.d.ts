@@ -5,7 +5,22 @@ declare module "react-native-sound-player" {
     | "FinishedLoading"
     | "FinishedPlaying"
     | "FinishedLoadingURL"
-    | "FinishedLoadingFile";
+    | "FinishedLoadingFile"
+    | "PreloadProgress"
+    | "QueueIndexChanged"
+    | "SeekComplete"
+    | "PlayerStateChanged"
+    | "AudioLevels";
+
+  /** Android only. States of the player, reported by `PlayerStateChanged` and getStateSync(). */
+  export type PlayerState =
+    | "idle"
+    | "preparing"
+    | "ready"
+    | "playing"
+    | "paused"
+    | "ended"
+    | "error";
 
   export type AndroidMediaPlayerError = {
     what: number;
@@ -17,19 +32,178 @@ declare module "react-native-sound-player" {
   export type SoundPlayerEventData = {
     success?: boolean;
     url?: string;
+    voiceId?: number;
+    /** Sent with `QueueIndexChanged`: index in the queue of the item now playing. */
+    index?: number;
+    /** Sent with `SeekComplete`: position reached, in seconds. */
+    currentTime?: number;
+    /** Sent with `SeekComplete`: time the seek took, in milliseconds. */
+    latencyMs?: number;
     name?: string;
     type?: string;
     androidMediaError?: AndroidMediaPlayerError;
+    /** Android only. Sent with `FinishedLoading` when a sound file or url could not be loaded, and with `PlayerStateChanged` when moving to `error`. */
+    error?: string;
+    /** Android only. Sent with `PlayerStateChanged`. */
+    state?: PlayerState;
+    /** Android only. Sent with `PlayerStateChanged`. */
+    previousState?: PlayerState;
     iosErrorCode?: number;
     iosErrorDescription?: string;
   };
 
+  export type PreloadProgressEventData = {
+    batchId: number;
+    completed: number;
+    failed: number;
+    total: number;
+    bytesCached: number;
+    done: boolean;
+  };
+
+  export type BufferingProfile =
+    | "default"
+    | "fast-start"
+    | "memory-lean"
+    | "stream-robust"
+    | "custom";
+
+  export type ScheduledCue = {
+    name: string;
+    type: string;
+    /** Milliseconds from the call until the cue starts. */
+    offsetMs: number;
+    volume?: number;
+    /** Priority of the voice the cue plays on, see playSoundFileVoice. */
+    priority?: number;
+  };
+
+  export type Backend = "auto" | "exoplayer" | "mediaplayer" | "sample" | "mixer";
+
+  export type CustomBufferingProfile = {
+    minBufferMs?: number;
+    maxBufferMs?: number;
+    bufferForPlaybackMs?: number;
+    bufferForPlaybackAfterRebufferMs?: number;
+    targetBufferBytes?: number;
+  };
+
+  export type HttpOptions = {
+    /** Defaults to 8000 ms. 0 means no timeout. */
+    connectTimeoutMs?: number;
+    /** Longest wait for data once connected. Defaults to 8000 ms. 0 means no timeout. */
+    readTimeoutMs?: number;
+    userAgent?: string;
+    /** Sent with every request, e.g. an authorization header. */
+    headers?: { [name: string]: string };
+    /** Retries of a failed request before the error is reported. Defaults to 3. */
+    maxRetries?: number;
+    /** Wait before the first retry, doubled for each next one. Defaults to 500 ms. */
+    retryBaseDelayMs?: number;
+    /** Longest wait between two retries. Defaults to 8000 ms. */
+    retryMaxDelayMs?: number;
+  };
+
+  export type AudioAnalysis = {
+    /** In seconds. */
+    duration: number;
+    sampleRate: number;
+    channels: number;
+    /** Lowest sample of each bucket, from -1 to 1. */
+    min: number[];
+    /** Highest sample of each bucket, from -1 to 1. */
+    max: number[];
+    /** Root mean square of the whole sound, from 0 to 1. */
+    rms: number;
+    /** Highest absolute sample, from 0 to 1. */
+    peak: number;
+    /** Integrated loudness (ITU-R BS.1770) in LUFS, null for silence. */
+    loudness: number | null;
+    /** Gain in dB bringing the sound to -18 LUFS (ReplayGain 2.0), null for silence. */
+    replayGain: number | null;
+    /** Whether the result came from the disk cache. */
+    cached: boolean;
+  };
+
+  /** Android only. Levels of each channel of the playing audio, sent with `AudioLevels` and returned by getAudioLevelsSync(). Empty when nothing is playing. */
+  export type AudioLevels = {
+    /** Highest absolute sample of each channel, from 0 to 1. */
+    peak: number[];
+    /** Root mean square of each channel, from 0 to 1. */
+    rms: number[];
+  };
+
+  export type CacheStats = {
+    enabled: boolean;
+    maxBytes: number;
+    sizeBytes: number;
+    bytesFromCache: number;
+    bytesFromNetwork: number;
+    hitRatio: number;
+  };
+
+  export type LatencyStats = {
+    count: number;
+    meanMs: number;
+    maxMs: number;
+    p50Ms: number;
+    p95Ms: number;
+    p99Ms: number;
+  };
+
+  export type PlaybackState = {
+    state: PlayerState;
+    currentTime: number;
+    duration: number;
+    bufferedTime: number;
+  };
+
+  export type BackendMetrics = {
+    prepare: LatencyStats;
+    firstFrame: LatencyStats;
+    seek: LatencyStats;
+    /** `count` is the number of stalls during playback. */
+    rebuffer: LatencyStats;
+    /** Number of errors by `whatString`. */
+    errors: { [whatString: string]: number };
+  };
+
+  export type PlaybackMetrics = {
+    /** Time between a call and the moment the playback thread starts running it. */
+    queueDelay: LatencyStats;
+    backends: {
+      exoplayer: BackendMetrics;
+      mediaplayer: BackendMetrics;
+      sample: BackendMetrics;
+      mixer: BackendMetrics;
+    };
+    /** Loads of sound files served by a player kept prepared, see setPreparedPlayerCacheSize(). */
+    preparedPlayers: {
+      hits: number;
+      misses: number;
+      evictions: number;
+      hitRatio: number;
+      /** Players kept prepared, besides the current one. */
+      players: number;
+    };
+  };
+
   interface SoundPlayerType {
-    playSoundFile: (name: string, type: string) => void;
+    /** `backend` is Android only, see `setBackend`. */
+    playSoundFile: (name: string, type: string, backend?: Backend) => void;
     playSoundFileWithDelay: (name: string, type: string, delay: number) => void;
-    loadSoundFile: (name: string, type: string) => void;
-    playUrl: (url: string) => void;
-    loadUrl: (url: string) => void;
+    /** `backend` is Android only, see `setBackend`. */
+    loadSoundFile: (name: string, type: string, backend?: Backend) => void;
+    /** `bufferingProfile` and `backend` are Android only, see `setBufferingProfile` and `setBackend`. */
+    playUrl: (url: string, bufferingProfile?: BufferingProfile | null, backend?: Backend) => void;
+    /** `bufferingProfile` and `backend` are Android only, see `setBufferingProfile` and `setBackend`. */
+    loadUrl: (url: string, bufferingProfile?: BufferingProfile | null, backend?: Backend) => void;
+    /** Android only, no-op on iOS. Choose the player used for the next loaded sounds. `auto` plays small local clips with the sample engine, streams with ExoPlayer, and other local files with whichever of MediaPlayer and ExoPlayer prepared them faster on this device. Defaults to `exoplayer`. */
+    setBackend: (backend: Backend) => void;
+    /** Android only, no-op on iOS. Set how much audio ExoPlayer buffers ahead for the next loaded urls: `fast-start` starts after 0.5 s is buffered, `memory-lean` keeps at most 10 s and 2 MB, `stream-robust` keeps up to 2 minutes, `default` keeps up to 50 s. */
+    setBufferingProfile: (bufferingProfile: BufferingProfile) => void;
+    /** Android only, no-op on iOS. Define and select the `custom` buffering profile. Missing values use the `default` profile values. */
+    setCustomBufferingProfile: (options: CustomBufferingProfile) => void;
     /** @deprecated  please use addEventListener*/
     onFinishedPlaying: (callback: (success: boolean) => unknown) => void;
     /** @deprecated  please use addEventListener*/
@@ -39,11 +213,33 @@ declare module "react-native-sound-player" {
       eventName: SoundPlayerEvent,
       callback: (data: SoundPlayerEventData) => void
     ) => EmitterSubscription;
+    addEventListener: (
+      eventName: "PreloadProgress",
+      callback: (data: PreloadProgressEventData) => void
+    ) => EmitterSubscription;
+    addEventListener: (
+      eventName: "AudioLevels",
+      callback: (data: AudioLevels) => void
+    ) => EmitterSubscription;
+    /** Android only, never called on iOS. Receive the currentTime and duration of the playing audio, sampled natively `rateHz` times per second (1 to 60, default 10). Nothing is sent while the player is paused or the position did not change, and sampling stops once every returned subscription is removed. The rate applies to all listeners; the last call wins. */
+    addProgressListener: (
+      callback: (data: { currentTime: number; duration: number }) => void,
+      rateHz?: number
+    ) => { remove: () => void };
     /** Retrieve the current device volume (0.0: no sound, 1.0: max sound volume) **/
     getDeviceVolume: () => Promise<number>;
     /** Check if the device is muted or not */
     isDeviceMuted: () => Promise<boolean>;
 
+    /** Android only, no-op on iOS. Load a queue of urls without playing it; call `play()` to start. Items play back to back, the next one being buffered while the current one plays. `QueueIndexChanged` is sent whenever the current item changes, `FinishedPlaying` when the last item ends. */
+    setQueue: (urls: string[]) => void;
+    /** Android only, no-op on iOS. Add a url at the end of the queue, or start a new queue if none is loaded. */
+    enqueue: (url: string) => void;
+    /** Android only, no-op on iOS. Skip to the next item of the queue. */
+    skipNext: () => void;
+    /** Android only, no-op on iOS. Go back to the previous item of the queue. */
+    skipPrevious: () => void;
+
     /** Play the loaded sound file. This function is the same as `resume`. */
     play: () => void;
     /** Pause the currently playing file. */
@@ -54,14 +250,97 @@ declare module "react-native-sound-player" {
     stop: () => void;
     /** Seek to seconds of the currently playing file. */
     seek: (seconds: number) => void;
+    /** Seek to `ms` milliseconds. Android only: `fast` seeks to the closest sync frame, `exact` to the exact position, and `SeekComplete` is sent when done. */
+    seekTo: (ms: number, mode?: "fast" | "exact") => void;
     /** Set the volume of the current player. This does not change the volume of the device. */
     setVolume: (volume: number) => void;
     /** Only available on iOS. Overwrite default audio output to speaker, which forces playUrl() function to play from speaker. */
     setSpeaker: (on: boolean) => void;
-    /** IOS only. Set the number of loops. A negative value will loop indefinitely until the stop() command is called. */
+    /** Set the number of loops of the next loaded sound. A negative value will loop indefinitely until the stop() command is called. */
     setNumberOfLoops: (loops: number) => void;
+    /** Android only, no-op on iOS. When looping, repeat only the region from `startMs` to `endMs` of the next loaded sounds; the first pass plays from the start of the sound to `endMs`. An `endMs` of 0 means the end of the sound; `setLoopRegion(0, 0)` loops the whole sound again. */
+    setLoopRegion: (startMs: number, endMs: number) => void;
     /** Get the currentTime and duration of the currently mounted audio media. This function returns a promise which resolves to an Object containing currentTime and duration properties. */
     getInfo: () => Promise<{ currentTime: number; duration: number }>;
+    /** Android only, 0 on iOS. Get the current time in seconds synchronously, from the state last published by the player. */
+    getCurrentTimeSync: () => number;
+    /** Android only, null on iOS. Get the player state synchronously, from the state last published by the player. `bufferedTime` is the duration for local sounds. */
+    getStateSync: () => PlaybackState | null;
+    /** Android only, no-op on iOS. Meter the levels of the sounds loaded from now on, sending `AudioLevels` `rateHz` times per second (at most 30, default 15; 0 sends nothing and leaves getAudioLevelsSync()). Each reading covers the last `windowMs` (10 to 640, default 100). Sounds played with the ExoPlayer backend only. */
+    startMetering: (options?: { rateHz?: number; windowMs?: number }) => void;
+    /** Android only, no-op on iOS. Stop metering; the audio chain is back to its default from the next load or seek. */
+    stopMetering: () => void;
+    /** Android only, null on iOS or when the current player is not metered. Get the last levels synchronously. */
+    getAudioLevelsSync: () => AudioLevels | null;
+    /** Android only, no-op on iOS. Resolve the given sound files once, typically at startup, so that playing them later skips the resource lookup and file checks. Sound files are also remembered after their first play. */
+    registerSounds: (sounds: { name: string; type: string }[]) => void;
+    /** Android only, resolves to an empty array on iOS. Load a sound bank packed with `pack-sound-bank`, from a raw resource, a file in the app files folder or an absolute path. Its clips are then played with playSoundFile(name, type). Resolves to the keys ("name.type") of the clips. */
+    loadSoundBank: (name: string) => Promise<string[]>;
+    /** Android only, no-op on iOS. Forget a loaded sound bank. */
+    unloadSoundBank: (name: string) => void;
+    /** Android only, resolves to null on iOS. Decode a sound file or url in the background and resolve to its waveform peaks and loudness. Results are cached on disk, so analyzing the same sound again resolves right away. */
+    analyze: (
+      source: { url: string } | { name: string; type: string },
+      options?: { buckets?: number }
+    ) => Promise<AudioAnalysis | null>;
+    /** Android only, no-op on iOS. Build the player in the background and prime a decoder for each given sound (or decode it, for the sample engine), so the first play is as fast as the next ones. Resolves when done. */
+    warmUp: (sounds?: { name: string; type: string }[]) => Promise<void>;
+    /** Android only, no-op on iOS. Forget every resolved sound file. Files written directly in the app files folder are detected automatically; call this after changing files in its subfolders. */
+    invalidateSounds: () => void;
+    /** Android only, no-op on iOS. Play sound files (not urls) with the low-latency sample engine: clips are decoded once, kept in memory and played from an AudioTrack. Meant for short clips such as UI sounds. Clips with more than two channels are downmixed to stereo. */
+    setSampleEngineEnabled: (enabled: boolean) => void;
+    /** Android only, no-op on iOS. Set the memory budget, in bytes, of the decoded clips kept by the sample engine. Defaults to 8 MB. */
+    setSampleCacheSize: (maxBytes: number) => void;
+    /** Android only, no-op on iOS. Keep up to `maxPlayers` players prepared on recently played sound files, each for `keepMs` milliseconds (default 10000), so that playing one of them again only rewinds it. 0, the default, disables it. */
+    setPreparedPlayerCacheSize: (maxPlayers: number, keepMs?: number) => void;
+    /** Android only, no-op on iOS. Release the players after `ms` milliseconds without any call or playback. The loaded sound is loaded again by the next resume(). 0, the default, disables it. */
+    setIdleTimeout: (ms: number) => void;
+    /** Android only, no-op on iOS. Keep the audio streamed by playUrl/loadUrl in a disk cache, so playing the same url again does not download it again. Disabled by default. */
+    setCacheEnabled: (enabled: boolean) => void;
+    /** Android only, no-op on iOS. Set the size of the disk cache in bytes. The least recently used audio is evicted first, right away when the cache is over the new size. Defaults to 100 MB. */
+    setCacheSize: (maxBytes: number) => void;
+    /** Android only, resolves to empty disabled stats on iOS. Get the size and hit ratio of the disk cache. `hitRatio` is the share of the streamed bytes that were read from the cache. */
+    getCacheStats: () => Promise<CacheStats>;
+    /** Android only, no-op on iOS. Set timeouts, request headers and retries of the urls streamed by playUrl/loadUrl, the queue and preloadUrls. Takes effect for the next loaded url. Unset values go back to their defaults. */
+    setHttpOptions: (options: HttpOptions) => void;
+    /** Android only, no-op on iOS. Remove everything from the disk cache and reset its statistics. */
+    clearCache: () => void;
+    /** Android only, rejects on iOS. Get latency percentiles and error counts of every playback backend since startup or the last resetMetrics(). */
+    getMetrics: () => Promise<PlaybackMetrics>;
+    /** Android only, no-op on iOS. Reset the values returned by getMetrics(). */
+    resetMetrics: () => void;
+    /** Android only, rejects on iOS. Download the beginning of each url into the url cache in the background, so a later playUrl starts from local bytes. Urls are started in order with at most `parallelism` (default 2) downloads at a time, and at most `maxBytesPerUrl` bytes (default: whole file) per url. Progress of the whole batch is reported by the `PreloadProgress` event. Starting a batch cancels the previous one. Resolves to the batch id; rejects when the url cache is disabled. */
+    preloadUrls: (urls: string[], maxBytesPerUrl?: number, parallelism?: number) => Promise<number>;
+    /** Android only, no-op on iOS. Cancel the running preload batch. */
+    cancelPreload: () => void;
+    /** Android only, rejects on iOS. Play sound files at given offsets from now, timed natively so a busy JS thread does not delay them. Each cue is loaded on its own voice shortly before it starts. Resolves to the cue ids, in order. */
+    scheduleSoundFiles: (cues: ScheduledCue[]) => Promise<number[]>;
+    /** Android only, no-op on iOS. Cancel a cue that did not start yet. */
+    cancelScheduled: (cueId: number) => void;
+    /** Android only, no-op on iOS. Cancel every cue that did not start yet. */
+    cancelAllScheduled: () => void;
+    /** Android only, no-op on iOS. Set how many voices can play at the same time. Defaults to 4. Voices still playing beyond the new size are stopped and send `FinishedPlaying` with `success: false`. */
+    setMaxVoices: (maxVoices: number) => void;
+    /** Android only, rejects on iOS. Play a sound file on its own voice, without interrupting other sounds. Resolves to the voice id. When every voice is busy, the lowest priority, oldest voice is stolen; the promise rejects if all voices have a higher priority. */
+    playSoundFileVoice: (name: string, type: string, priority?: number) => Promise<number>;
+    /** Android only, rejects on iOS. Play the audio from url on its own voice. Resolves to the voice id. */
+    playUrlVoice: (url: string, priority?: number) => Promise<number>;
+    /** Android only, no-op on iOS. Pause the given voice. */
+    pauseVoice: (voiceId: number) => void;
+    /** Android only, no-op on iOS. Resume the given voice. */
+    resumeVoice: (voiceId: number) => void;
+    /** Android only, no-op on iOS. Stop the given voice and free it for other sounds. */
+    stopVoice: (voiceId: number) => void;
+    /** Android only, no-op on iOS. Seek to seconds of the given voice. */
+    seekVoice: (voiceId: number, seconds: number) => void;
+    /** Android only, no-op on iOS. Set the volume of the given voice. */
+    setVoiceVolume: (voiceId: number, volume: number) => void;
+    /** Android only, no-op on iOS. Set the stereo position of the given voice, from -1 (left) to 1 (right). Only voices played by the `mixer` backend can be panned. */
+    setVoicePan: (voiceId: number, pan: number) => void;
+    /** Android only, no-op on iOS. Set how many sounds the `mixer` backend mixes at the same time. Defaults to 32. */
+    setMixerMaxChannels: (maxChannels: number) => void;
+    /** Android only, rejects on iOS. Get the currentTime and duration of the given voice, or null if it finished or was stolen. */
+    getVoiceInfo: (voiceId: number) => Promise<{ voiceId: number; currentTime: number; duration: number } | null>;
     /** @deprecated Please use addEventListener and remove your own listener by calling yourSubscriptionObject.remove(). */
     unmount: () => void;
   }
@@ -6,33 +6,106 @@
 import { NativeModules, NativeEventEmitter, Platform } from "react-native";
 const { RNSoundPlayer } = NativeModules;
 
-const _soundPlayerEmitter = new NativeEventEmitter(RNSoundPlayer);
+// On Android, subscriptions are counted by _addListener so that the module only sends
+// events someone listens to
+const _soundPlayerEmitter = new NativeEventEmitter(
+  Platform.OS === "ios" ? RNSoundPlayer : undefined
+);
 let _finishedPlayingListener = null;
 let _finishedLoadingListener = null;
+let _progressListenerCount = 0;
+
+function _addListener(eventName: string, callback: Function) {
+  const subscription = _soundPlayerEmitter.addListener(eventName, callback);
+  if (Platform.OS !== "android") {
+    return subscription;
+  }
+  RNSoundPlayer.subscribe(eventName);
+  const remove = subscription.remove.bind(subscription);
+  let removed = false;
+  subscription.remove = () => {
+    if (!removed) {
+      removed = true;
+      RNSoundPlayer.unsubscribe(eventName);
+    }
+    remove();
+  };
+  return subscription;
+}
 
 export default {
-  playSoundFile: (name: string, type: string) => {
-    RNSoundPlayer.playSoundFile(name, type);
+  playSoundFile: (name: string, type: string, backend?: string) => {
+    if (backend && Platform.OS === "android") {
+      RNSoundPlayer.playSoundFileWithBackend(name, type, backend);
+    } else {
+      RNSoundPlayer.playSoundFile(name, type);
+    }
   },
 
   playSoundFileWithDelay: (name: string, type: string, delay: number) => {
     RNSoundPlayer.playSoundFileWithDelay(name, type, delay);
   },
 
-  loadSoundFile: (name: string, type: string) => {
-    RNSoundPlayer.loadSoundFile(name, type);
+  loadSoundFile: (name: string, type: string, backend?: string) => {
+    if (backend && Platform.OS === "android") {
+      RNSoundPlayer.loadSoundFileWithBackend(name, type, backend);
+    } else {
+      RNSoundPlayer.loadSoundFile(name, type);
+    }
   },
 
   setNumberOfLoops: (loops: number) => {
     RNSoundPlayer.setNumberOfLoops(loops);
   },
 
-  playUrl: (url: string) => {
-    RNSoundPlayer.playUrl(url);
+  setLoopRegion: (startMs: number, endMs: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setLoopRegion(startMs, endMs);
+    }
+  },
+
+  playUrl: (url: string, bufferingProfile?: ?string, backend?: string) => {
+    if (backend && Platform.OS === "android") {
+      RNSoundPlayer.playUrlWithBackend(url, bufferingProfile || null, backend);
+    } else if (bufferingProfile && Platform.OS === "android") {
+      RNSoundPlayer.playUrlWithProfile(url, bufferingProfile);
+    } else {
+      RNSoundPlayer.playUrl(url);
+    }
+  },
+
+  loadUrl: (url: string, bufferingProfile?: ?string, backend?: string) => {
+    if (backend && Platform.OS === "android") {
+      RNSoundPlayer.loadUrlWithBackend(url, bufferingProfile || null, backend);
+    } else if (bufferingProfile && Platform.OS === "android") {
+      RNSoundPlayer.loadUrlWithProfile(url, bufferingProfile);
+    } else {
+      RNSoundPlayer.loadUrl(url);
+    }
+  },
+
+  setBackend: (backend: string) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setBackend(backend);
+    }
   },
 
-  loadUrl: (url: string) => {
-    RNSoundPlayer.loadUrl(url);
+  setBufferingProfile: (bufferingProfile: string) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setBufferingProfile(bufferingProfile);
+    }
+  },
+
+  setCustomBufferingProfile: (options: {
+    minBufferMs?: number,
+    maxBufferMs?: number,
+    bufferForPlaybackMs?: number,
+    bufferForPlaybackAfterRebufferMs?: number,
+    targetBufferBytes?: number,
+  }) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setCustomBufferingProfile(options);
+    }
   },
 
   onFinishedPlaying: (callback: (success: boolean) => any) => {
@@ -41,10 +114,7 @@ export default {
       _finishedPlayingListener = undefined;
     }
 
-    _finishedPlayingListener = _soundPlayerEmitter.addListener(
-      "FinishedPlaying",
-      callback
-    );
+    _finishedPlayingListener = _addListener("FinishedPlaying", callback);
   },
 
   onFinishedLoading: (callback: (success: boolean) => any) => {
@@ -53,10 +123,7 @@ export default {
       _finishedLoadingListener = undefined;
     }
 
-    _finishedLoadingListener = _soundPlayerEmitter.addListener(
-      "FinishedLoading",
-      callback
-    );
+    _finishedLoadingListener = _addListener("FinishedLoading", callback);
   },
 
   addEventListener: (
@@ -64,9 +131,41 @@ export default {
       | "FinishedLoading"
       | "FinishedPlaying"
       | "FinishedLoadingURL"
-      | "FinishedLoadingFile",
+      | "FinishedLoadingFile"
+      | "PreloadProgress"
+      | "QueueIndexChanged"
+      | "SeekComplete"
+      | "PlayerStateChanged"
+      | "AudioLevels",
     callback: Function
-  ) => _soundPlayerEmitter.addListener(eventName, callback),
+  ) => _addListener(eventName, callback),
+
+  addProgressListener: (
+    callback: (data: { currentTime: number, duration: number }) => any,
+    rateHz?: number
+  ) => {
+    const subscription = _addListener("PlaybackProgress", callback);
+    if (Platform.OS !== "android") {
+      return subscription;
+    }
+    _progressListenerCount++;
+    RNSoundPlayer.startProgressUpdates(rateHz || 10);
+
+    let removed = false;
+    return {
+      remove: () => {
+        if (removed) {
+          return;
+        }
+        removed = true;
+        subscription.remove();
+        _progressListenerCount--;
+        if (_progressListenerCount === 0) {
+          RNSoundPlayer.stopProgressUpdates();
+        }
+      },
+    };
+  },
 
   isDeviceMuted: async () => RNSoundPlayer.isDeviceMuted(),
 
@@ -77,6 +176,30 @@ export default {
     RNSoundPlayer.resume();
   },
 
+  setQueue: (urls: Array<string>) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setQueue(urls);
+    }
+  },
+
+  enqueue: (url: string) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.enqueue(url);
+    }
+  },
+
+  skipNext: () => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.skipNext();
+    }
+  },
+
+  skipPrevious: () => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.skipPrevious();
+    }
+  },
+
   pause: () => {
     RNSoundPlayer.pause();
   },
@@ -93,6 +216,14 @@ export default {
     RNSoundPlayer.seek(seconds);
   },
 
+  seekTo: (ms: number, mode?: "fast" | "exact") => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.seekTo(ms, mode || null);
+    } else {
+      RNSoundPlayer.seek(ms / 1000);
+    }
+  },
+
   setVolume: (volume: number) => {
     RNSoundPlayer.setVolume(volume);
   },
@@ -107,6 +238,277 @@ export default {
 
   getInfo: async () => RNSoundPlayer.getInfo(),
 
+  getCurrentTimeSync: (): number => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.getCurrentTimeSync();
+    }
+    return 0;
+  },
+
+  getStateSync: () => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.getStateSync();
+    }
+    return null;
+  },
+
+  startMetering: (options?: { rateHz?: number, windowMs?: number }) => {
+    if (Platform.OS === "android") {
+      const { rateHz = 15, windowMs = 100 } = options || {};
+      RNSoundPlayer.startMetering(rateHz, windowMs);
+    }
+  },
+
+  stopMetering: () => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.stopMetering();
+    }
+  },
+
+  getAudioLevelsSync: () => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.getAudioLevelsSync();
+    }
+    return null;
+  },
+
+  registerSounds: (sounds: Array<{ name: string, type: string }>) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.registerSounds(sounds);
+    }
+  },
+
+  loadSoundBank: async (name: string) => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.loadSoundBank(name);
+    }
+    return [];
+  },
+
+  unloadSoundBank: (name: string) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.unloadSoundBank(name);
+    }
+  },
+
+  analyze: async (
+    source: { url: string } | { name: string, type: string },
+    options?: { buckets?: number }
+  ) => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.analyze(source, options || {});
+    }
+    return null;
+  },
+
+  warmUp: async (sounds?: Array<{ name: string, type: string }>) => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.warmUp(sounds || []);
+    }
+  },
+
+  invalidateSounds: () => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.invalidateSounds();
+    }
+  },
+
+  setSampleEngineEnabled: (enabled: boolean) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setSampleEngineEnabled(enabled);
+    }
+  },
+
+  setSampleCacheSize: (maxBytes: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setSampleCacheSize(maxBytes);
+    }
+  },
+
+  setPreparedPlayerCacheSize: (maxPlayers: number, keepMs?: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setPreparedPlayerCacheSize(maxPlayers, keepMs || 10000);
+    }
+  },
+
+  setIdleTimeout: (ms: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setIdleTimeout(ms);
+    }
+  },
+
+  setCacheEnabled: (enabled: boolean) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setCacheEnabled(enabled);
+    }
+  },
+
+  setCacheSize: (maxBytes: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setCacheSize(maxBytes);
+    }
+  },
+
+  getCacheStats: async () => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.getCacheStats();
+    }
+    return {
+      enabled: false,
+      maxBytes: 0,
+      sizeBytes: 0,
+      bytesFromCache: 0,
+      bytesFromNetwork: 0,
+      hitRatio: 0,
+    };
+  },
+
+  setHttpOptions: (options: {
+    connectTimeoutMs?: number,
+    readTimeoutMs?: number,
+    userAgent?: string,
+    headers?: { [name: string]: string },
+    maxRetries?: number,
+    retryBaseDelayMs?: number,
+    retryMaxDelayMs?: number,
+  }) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setHttpOptions(options);
+    }
+  },
+
+  clearCache: () => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.clearCache();
+    }
+  },
+
+  getMetrics: async () => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.getMetrics();
+    }
+    throw new Error("getMetrics is only available on Android");
+  },
+
+  resetMetrics: () => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.resetMetrics();
+    }
+  },
+
+  preloadUrls: async (
+    urls: Array<string>,
+    maxBytesPerUrl?: number,
+    parallelism?: number
+  ) => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.preloadUrls(urls, maxBytesPerUrl || 0, parallelism || 2);
+    }
+    throw new Error("preloadUrls is only available on Android");
+  },
+
+  cancelPreload: () => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.cancelPreload();
+    }
+  },
+
+  scheduleSoundFiles: async (
+    cues: Array<{
+      name: string,
+      type: string,
+      offsetMs: number,
+      volume?: number,
+      priority?: number,
+    }>
+  ) => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.scheduleSoundFiles(cues);
+    }
+    throw new Error("scheduleSoundFiles is only available on Android");
+  },
+
+  cancelScheduled: (cueId: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.cancelScheduled(cueId);
+    }
+  },
+
+  cancelAllScheduled: () => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.cancelAllScheduled();
+    }
+  },
+
+  setMaxVoices: (maxVoices: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setMaxVoices(maxVoices);
+    }
+  },
+
+  playSoundFileVoice: async (name: string, type: string, priority?: number) => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.playSoundFileVoice(name, type, priority || 0);
+    }
+    throw new Error("playSoundFileVoice is only available on Android");
+  },
+
+  playUrlVoice: async (url: string, priority?: number) => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.playUrlVoice(url, priority || 0);
+    }
+    throw new Error("playUrlVoice is only available on Android");
+  },
+
+  pauseVoice: (voiceId: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.pauseVoice(voiceId);
+    }
+  },
+
+  resumeVoice: (voiceId: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.resumeVoice(voiceId);
+    }
+  },
+
+  stopVoice: (voiceId: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.stopVoice(voiceId);
+    }
+  },
+
+  seekVoice: (voiceId: number, seconds: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.seekVoice(voiceId, seconds);
+    }
+  },
+
+  setVoiceVolume: (voiceId: number, volume: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setVoiceVolume(voiceId, volume);
+    }
+  },
+
+  setVoicePan: (voiceId: number, pan: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setVoicePan(voiceId, pan);
+    }
+  },
+
+  setMixerMaxChannels: (maxChannels: number) => {
+    if (Platform.OS === "android") {
+      RNSoundPlayer.setMixerMaxChannels(maxChannels);
+    }
+  },
+
+  getVoiceInfo: async (voiceId: number) => {
+    if (Platform.OS === "android") {
+      return RNSoundPlayer.getVoiceInfo(voiceId);
+    }
+    throw new Error("getVoiceInfo is only available on Android");
+  },
+
   unmount: () => {
     if (_finishedPlayingListener) {
       _finishedPlayingListener.remove();
@@ -0,0 +1,102 @@
+#!/usr/bin/env node
+/**
+ * Packs sound files into one sound bank for SoundPlayer.loadSoundBank() on Android.
+ *
+ * Usage: pack-sound-bank <output.rnsb> <file or folder>...
+ *
+ * Folders are packed with the audio files they directly contain. Each clip is stored as is,
+ * under its file name, and played with playSoundFile(name, type) once the bank is loaded.
+ *
+ * Format, big-endian: "RNSB", u32 version, u32 clip count, then per clip a u16 key length,
+ * the UTF-8 key ("name.type"), a u64 offset from the start of the bank and a u64 length,
+ * then the clip data.
+ */
+const fs = require("fs");
+const path = require("path");
+
+const MAGIC = "RNSB";
+const VERSION = 1;
+
+function listFiles(inputs, output) {
+  const files = [];
+  inputs.forEach((input) => {
+    if (fs.statSync(input).isDirectory()) {
+      fs.readdirSync(input)
+        .sort()
+        .forEach((name) => {
+          const file = path.join(input, name);
+          if (
+            !name.startsWith(".") &&
+            path.resolve(file) !== path.resolve(output) &&
+            fs.statSync(file).isFile()
+          ) {
+            files.push(file);
+          }
+        });
+    } else {
+      files.push(input);
+    }
+  });
+  return files;
+}
+
+function pack(output, inputs) {
+  const clips = [];
+  const keys = new Set();
+  listFiles(inputs, output).forEach((file) => {
+    const key = path.basename(file);
+    if (keys.has(key)) {
+      throw new Error(`Duplicate sound ${key} (${file})`);
+    }
+    keys.add(key);
+    clips.push({ key: Buffer.from(key, "utf8"), data: fs.readFileSync(file) });
+  });
+
+  let indexSize = 12;
+  clips.forEach((clip) => {
+    if (clip.key.length > 0xffff) {
+      throw new Error(`Sound name too long: ${clip.key.toString()}`);
+    }
+    indexSize += 2 + clip.key.length + 16;
+  });
+
+  const index = Buffer.alloc(indexSize);
+  index.write(MAGIC, 0, "ascii");
+  index.writeUInt32BE(VERSION, 4);
+  index.writeUInt32BE(clips.length, 8);
+  let position = 12;
+  let offset = indexSize;
+  clips.forEach((clip) => {
+    position = index.writeUInt16BE(clip.key.length, position);
+    position += clip.key.copy(index, position);
+    position = index.writeBigUInt64BE(BigInt(offset), position);
+    position = index.writeBigUInt64BE(BigInt(clip.data.length), position);
+    offset += clip.data.length;
+  });
+
+  const fd = fs.openSync(output, "w");
+  try {
+    fs.writeSync(fd, index);
+    clips.forEach((clip) => fs.writeSync(fd, clip.data));
+  } finally {
+    fs.closeSync(fd);
+  }
+  return { clips: clips.length, bytes: offset };
+}
+
+if (require.main === module) {
+  const [output, ...inputs] = process.argv.slice(2);
+  if (!output || inputs.length === 0) {
+    console.error("Usage: pack-sound-bank <output.rnsb> <file or folder>...");
+    process.exit(1);
+  }
+  try {
+    const result = pack(output, inputs);
+    console.log(`Packed ${result.clips} sounds into ${output} (${result.bytes} bytes)`);
+  } catch (e) {
+    console.error(e.message);
+    process.exit(1);
+  }
+}
+
+module.exports = { pack };